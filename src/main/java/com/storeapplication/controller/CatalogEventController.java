@@ -0,0 +1,27 @@
+package com.storeapplication.controller;
+
+import com.storeapplication.services.CatalogEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/catalog")
+@Tag(name = "Catalog Events", description = "Live product and category changes")
+public class CatalogEventController {
+
+    @Autowired
+    private CatalogEventService catalogEventService;
+
+    // EventSource sends Last-Event-ID on reconnect by itself; the query parameter covers a fresh page load
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Catalog change feed", description = "Server-Sent Events for product and category changes; "
+            + "a 'reset' event means the client fell behind and should reload the lists")
+    public SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        return catalogEventService.subscribe(lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+}
@@ -3,12 +3,20 @@ package com.storeapplication.controller;
 import com.storeapplication.dto.request.CategoryRequestDto;
 import com.storeapplication.dto.response.BaseResponse;
 import com.storeapplication.models.Category;
+import com.storeapplication.services.CatalogVersionService;
 import com.storeapplication.services.CategoryService;
-import com.storeapplication.utils.ImageUtil;
+import com.storeapplication.services.ImageDerivativeService;
+import com.storeapplication.services.ImageServingService;
+import com.storeapplication.services.ImageStoreService;
+import com.storeapplication.utils.ETagUtil;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,9 +25,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -31,6 +36,18 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    @Autowired
+    private ImageServingService imageServingService;
+
     // DTO TO ENTITY
     public Category DtoToEntity(CategoryRequestDto req) {
         Category category = new Category();
@@ -41,25 +58,59 @@ public class CategoryController {
 
     // GET all categories
     @GetMapping
-    public List<Category> getAllCategories() {
-        return categoryService.getAllCategories();
+    public ResponseEntity<byte[]> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = catalogVersionService.categoryListTag();
+        String representationTag = gzip ? gzipTag(etag) : etag;
+        if (ETagUtil.matches(ifNoneMatch, representationTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(representationTag).build();
+        }
+
+        CategoryService.EncodedCategories encoded = categoryService.getAllCategoriesEncoded();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.eTag(gzipTag(encoded.getEtag()))
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(encoded.getGzip());
+        }
+        return response.eTag(encoded.getEtag()).body(encoded.getJson());
+    }
+
+    // each content encoding is its own representation and needs its own strong tag
+    private String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
     }
 
     // GET a single category by id
     @GetMapping("/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable(value = "id") Long id) {
+    public ResponseEntity<Category> getCategoryById(
+            @PathVariable(value = "id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersionService.categoryTag(id);
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         return categoryService.getCategoryById(id)
-                .map(category -> ResponseEntity.ok().body(category))
+                .map(category -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .body(category))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/images/{fileName}")
-    public ResponseEntity<byte[]> getImage(@PathVariable String fileName) throws IOException {
-        Path path = Paths.get(System.getProperty("user.dir") + "/upload/" + fileName);
-        byte[] image = Files.readAllBytes(path);
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(image);
+    public void getImage(@PathVariable String fileName,
+                         @RequestParam(value = "size", required = false) String size,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         @RequestParam(value = "h", required = false) Integer height,
+                         @RequestParam(value = "fit", required = false) String fit,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageServingService.send(fileName, size, width, height, fit, request, response);
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -70,15 +121,17 @@ public class CategoryController {
         Category category = DtoToEntity(req);
 
         if (imageFile != null && !imageFile.isEmpty()) {
-            String savedPath = ImageUtil.saveImageWithOrientation(imageFile,
-                    System.getProperty("user.dir") + "/upload");
+            String savedPath = imageStoreService.store(imageFile);
             category.setCategoryImage(savedPath);
+        } else if (req.getImageUploadId() != null) {
+            category.setCategoryImage(imageStoreService.storeUpload(req.getImageUploadId()));
         }
 
         String msg = categoryService.createCategory(category);
         if (msg != null) {
             return ResponseEntity.status(400).body(new BaseResponse(msg, false));
         }
+        generateDerivatives(category.getCategoryImage());
         return ResponseEntity.status(200).body(new BaseResponse(req.getCategoryName() + " Successfully Created", true));
     }
 
@@ -94,20 +147,27 @@ public class CategoryController {
         Category categoryDetails = DtoToEntity(req);
 
         if (imageFile != null && !imageFile.isEmpty()) {
-            String savedPath = ImageUtil.saveImageWithOrientation(
-                    imageFile,
-                    System.getProperty("user.dir") + "/upload"
-            );
+            String savedPath = imageStoreService.store(imageFile);
             categoryDetails.setCategoryImage(savedPath);
+        } else if (req.getImageUploadId() != null) {
+            categoryDetails.setCategoryImage(imageStoreService.storeUpload(req.getImageUploadId()));
         }
 
         String msg = categoryService.updateCategory(id, categoryDetails);
         if (msg != null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new BaseResponse(msg,false));
         }
+        generateDerivatives(categoryDetails.getCategoryImage());
         return ResponseEntity.ok().body(new BaseResponse("Successfully updated Category with id = " + id ,true));
     }
 
+    // runs after the category is saved, so the sizes always find the row to land on
+    private void generateDerivatives(String image) {
+        if (image != null) {
+            imageDerivativeService.generate(image, sizes -> categoryService.recordImageSizes(image, sizes));
+        }
+    }
+
     // DELETE a category
     @DeleteMapping("/{id}")
     public ResponseEntity<BaseResponse> deleteCategory(@PathVariable(value = "id") Long id) {
@@ -0,0 +1,57 @@
+package com.storeapplication.controller;
+
+import com.storeapplication.dto.response.BaseResponse;
+import com.storeapplication.dto.response.UploadStatusDto;
+import com.storeapplication.services.ImageUploadService;
+import com.storeapplication.utils.JwtUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+import static com.storeapplication.services.CustomUserDetailsService.requireRole;
+
+@RestController
+@RequestMapping("/api/uploads")
+public class ImageUploadController {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @PostMapping
+    @Operation(summary = "Start a resumable image upload", description = "Declare the total size; the returned uploadId is used for the chunks and then as imageUploadId on a product or category")
+    public ResponseEntity<UploadStatusDto> create(@RequestParam("size") long size, HttpServletRequest request) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        return ResponseEntity.status(HttpStatus.CREATED).body(imageUploadService.create(size));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Resumable upload status", description = "The offset the next chunk has to start at")
+    public UploadStatusDto status(@PathVariable String id, HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        return imageUploadService.status(id);
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Upload a chunk", description = "Raw bytes appended at offset, which must equal the current offset; 409 reports where to continue")
+    public UploadStatusDto append(@PathVariable String id, @RequestParam("offset") long offset,
+                                  HttpServletRequest request) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        return imageUploadService.append(id, offset, request.getInputStream());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<BaseResponse> abort(@PathVariable String id, HttpServletRequest request) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        imageUploadService.abort(id);
+        return ResponseEntity.ok(new BaseResponse("Upload discarded", true));
+    }
+}
@@ -8,20 +8,29 @@ import com.storeapplication.models.OrderProduct;
 import com.storeapplication.models.OrderStatus;
 import com.storeapplication.models.Product;
 import com.storeapplication.models.User;
+import com.storeapplication.services.ExportService;
 import com.storeapplication.services.OrderService;
 import com.storeapplication.services.ProductService;
 import com.storeapplication.services.UserService;
+import com.storeapplication.utils.ExportWriter;
+import com.storeapplication.utils.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.storeapplication.services.CustomUserDetailsService.requireRole;
+
 @RestController
 @RequestMapping("/api/orders")
 @Tag(name = "Order Management", description = "Endpoints for managing orders")
@@ -36,6 +45,12 @@ public class OrderController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
     private Order convertDtoToEntity(OrderRequestDto orderDto) {
         Order order = new Order();
 
@@ -60,6 +75,18 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/export")
+    @Operation(summary = "Export orders", description = "Stream all orders as NDJSON or CSV (format=csv)")
+    public void exportOrders(
+            @RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        String type = ExportWriter.CSV.equalsIgnoreCase(format) ? ExportWriter.CSV : ExportWriter.NDJSON;
+        response.setContentType(ExportWriter.contentType(type));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + type + "\"");
+        exportService.exportOrders(response.getOutputStream(), type);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieve a specific order by its ID")
     public ResponseEntity<?> getOrderById(@PathVariable Long id) {
@@ -142,7 +169,8 @@ public class OrderController {
         String result = orderService.updateOrderStatus(id, status);
         
         if (result != null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+            // anything but a missing order is stock that could not be committed for a payment
+            return ResponseEntity.status("order not found".equals(result) ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT)
                     .body(new BaseResponse(result, false));
         }
         
@@ -44,7 +44,10 @@ public class OrderProductController {
     public ResponseEntity<BaseResponse> saveProduct(@RequestBody OrderProductRequestDto dto) {
         OrderProduct orderProduct = DtoToEntity(dto);
         String msg = orderProductService.addOrderProduct(orderProduct);
-        return  ResponseEntity.ok().body(new BaseResponse(msg, true));
+        if (msg != null) {
+            return  ResponseEntity.badRequest().body(new BaseResponse(msg, false));
+        }
+        return  ResponseEntity.ok().body(new BaseResponse("Successfully added order product", true));
     }
 
     @DeleteMapping("/")
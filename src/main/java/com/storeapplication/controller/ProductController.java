@@ -1,15 +1,43 @@
 package com.storeapplication.controller;
 
+import com.storeapplication.dto.request.ProductPageRequestDto;
 import com.storeapplication.dto.request.ProductRequestDto;
 import com.storeapplication.dto.response.BaseResponse;
+import com.storeapplication.dto.response.CacheStatsResponseDto;
+import com.storeapplication.dto.response.FacetResponseDto;
+import com.storeapplication.dto.response.ImageGcStatsDto;
+import com.storeapplication.dto.response.ImageWorkerStatsDto;
+import com.storeapplication.dto.response.ImportResultDto;
+import com.storeapplication.dto.response.ProductDetailResponseDto;
+import com.storeapplication.dto.response.SuggestionResponseDto;
 import com.storeapplication.models.Category;
 import com.storeapplication.models.Product;
+import com.storeapplication.services.CatalogVersionService;
+import com.storeapplication.services.ExportService;
+import com.storeapplication.services.FacetService;
+import com.storeapplication.services.HotStockService;
+import com.storeapplication.services.ImageCacheService;
+import com.storeapplication.services.ImageDerivativeService;
+import com.storeapplication.services.ImageGcService;
+import com.storeapplication.services.ImageServingService;
+import com.storeapplication.services.ImageStoreService;
+import com.storeapplication.services.ImageWorkerService;
+import com.storeapplication.services.ProductCacheService;
+import com.storeapplication.services.ProductDetailService;
+import com.storeapplication.services.ProductImportService;
 import com.storeapplication.services.ProductService;
-import com.storeapplication.utils.ImageUtil;
+import com.storeapplication.services.SuggestService;
+import com.storeapplication.utils.ETagUtil;
+import com.storeapplication.utils.ExportWriter;
+import com.storeapplication.utils.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,10 +45,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import static com.storeapplication.services.CustomUserDetailsService.requireRole;
 
 @RestController
 @RequestMapping("/api/products")
@@ -30,6 +59,51 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private FacetService facetService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    @Autowired
+    private ImageCacheService imageCacheService;
+
+    @Autowired
+    private ImageServingService imageServingService;
+
+    @Autowired
+    private ImageWorkerService imageWorkerService;
+
+    @Autowired
+    private ImageGcService imageGcService;
+
 
 
     private Product convertDtoToEntity(ProductRequestDto productDto) {
@@ -49,28 +123,192 @@ public class ProductController {
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieve a list of all products")
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<List<Product>> getAllProducts(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersionService.productListTag();
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(productService.getAllProducts());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search products", description = "Full-text search over product name and description, best match first")
+    public List<Product> searchProducts(@RequestParam("q") String query,
+                                        @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return productService.searchProducts(query, limit);
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest products and categories", description = "Prefix autocomplete over product and category names, most popular first")
+    public List<SuggestionResponseDto> suggest(@RequestParam("q") String query,
+                                               @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return suggestService.suggest(query, limit);
+    }
+
+    @GetMapping("/category/{categoryId}")
+    @Operation(summary = "Get products by category", description = "Retrieve all products of one category")
+    public ResponseEntity<List<Product>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersionService.productListTag();
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(productService.getProductsByCategory(categoryId));
+    }
+
+    @GetMapping("/cache-stats")
+    @Operation(summary = "Cache statistics", description = "Hit, miss and eviction counters of the product and image caches")
+    public List<CacheStatsResponseDto> getCacheStats(HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        List<CacheStatsResponseDto> stats = new ArrayList<>(productCacheService.stats());
+        stats.add(imageCacheService.stats());
+        return stats;
+    }
+
+    @GetMapping("/image-stats")
+    @Operation(summary = "Image worker statistics", description = "Queue depth, rejections and wait/run times of the image processing workers")
+    public ImageWorkerStatsDto getImageStats(HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        return imageWorkerService.stats();
+    }
+
+    @GetMapping("/image-gc-stats")
+    @Operation(summary = "Orphaned image collector statistics", description = "Passes, files scanned and deleted and bytes reclaimed from the upload directory")
+    public ImageGcStatsDto getImageGcStats(HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        return imageGcService.stats();
+    }
+
+    @GetMapping("/hot-stock")
+    @Operation(summary = "Hot stock counters", description = "Products in flash-sale mode and their in-memory stock")
+    public Map<Long, Long> getHotStock(HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        return hotStockService.snapshot();
+    }
+
+    @PutMapping("/{id}/hot-stock")
+    @Operation(summary = "Enable hot stock mode", description = "Serve this product's stock from an in-memory counter flushed to the database in batches")
+    public ResponseEntity<BaseResponse> enableHotStock(@PathVariable Long id, HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        String msg = hotStockService.enable(id);
+        if (msg != null) {
+            return ResponseEntity.badRequest().body(new BaseResponse(msg, false));
+        }
+        return ResponseEntity.ok(new BaseResponse("Hot stock mode enabled", true));
+    }
+
+    @DeleteMapping("/{id}/hot-stock")
+    @Operation(summary = "Disable hot stock mode", description = "Flush the counter and go back to row-level stock updates")
+    public ResponseEntity<BaseResponse> disableHotStock(@PathVariable Long id, HttpServletRequest request) {
+        requireRole(request, jwtUtil, "ADMIN");
+        String msg = hotStockService.disable(id);
+        if (msg != null) {
+            return ResponseEntity.badRequest().body(new BaseResponse(msg, false));
+        }
+        return ResponseEntity.ok(new BaseResponse("Hot stock mode disabled", true));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export products", description = "Stream all products as NDJSON or CSV (format=csv)")
+    public void exportProducts(
+            @RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        String type = ExportWriter.CSV.equalsIgnoreCase(format) ? ExportWriter.CSV : ExportWriter.NDJSON;
+        response.setContentType(ExportWriter.contentType(type));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + type + "\"");
+        exportService.exportProducts(response.getOutputStream(), type);
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get facet counts", description = "Product counts per category, price bucket and discount range for the given filter")
+    public FacetResponseDto getFacets(ProductPageRequestDto req) {
+        return facetService.facets(req);
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of products", description = "Keyset-paginated product listing filtered by category, price range and stock")
+    public ResponseEntity<?> getProductsPage(ProductPageRequestDto req) {
+        try {
+            return ResponseEntity.ok(productService.getProductsPage(req));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BaseResponse(e.getMessage(), false));
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Long id) {
+    public ResponseEntity<?> getProductById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = catalogVersionService.productTag(id);
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Product product = productService.getProductById(id);
         if (product == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new BaseResponse("Product not found with id " + id, false));
         }
-        return ResponseEntity.ok(product);
+        suggestService.recordView(id);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(product);
+    }
+
+
+    @GetMapping("/{id}/detail")
+    @Operation(summary = "Get product detail page data", description = "Product, a page of comments, comment count and the caller's wishlist flag in one call")
+    public ResponseEntity<?> getProductDetail(
+            @PathVariable Long id,
+            @RequestParam(value = "commentPage", defaultValue = "0") int commentPage,
+            @RequestParam(value = "commentSize", defaultValue = "10") int commentSize,
+            HttpServletRequest request) {
+        ProductDetailResponseDto detail = productDetailService.getDetail(id, currentUserId(request),
+                Math.max(0, commentPage), Math.max(1, Math.min(commentSize, 50)));
+        if (detail == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new BaseResponse("Product not found with id " + id, false));
+        }
+        suggestService.recordView(id);
+        return ResponseEntity.ok(detail);
     }
 
+    // runs after the product is saved, so the sizes always find the row to land on
+    private void generateDerivatives(String image) {
+        if (image != null) {
+            imageDerivativeService.generate(image, sizes -> productService.recordImageSizes(image, sizes));
+        }
+    }
+
+    private Long currentUserId(HttpServletRequest request) {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String token = authHeader.substring(7);
+        return jwtUtil.isTokenValid(token) ? jwtUtil.extractUserId(token) : null;
+    }
 
     @GetMapping("/images/{fileName}")
-    public ResponseEntity<byte[]> getImage(@PathVariable String fileName) throws IOException {
-        Path path = Paths.get(System.getProperty("user.dir") + "/upload/" + fileName);
-        byte[] image = Files.readAllBytes(path);
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(image);
+    @Operation(summary = "Get product image", description = "size=thumb|card|zoom picks a derivative, falling back to the original until it is ready; "
+            + "w/h (whitelisted sizes) with fit=contain|cover renders and caches any other size")
+    public void getImage(@PathVariable String fileName,
+                         @RequestParam(value = "size", required = false) String size,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         @RequestParam(value = "h", required = false) Integer height,
+                         @RequestParam(value = "fit", required = false) String fit,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageServingService.send(fileName, size, width, height, fit, request, response);
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -81,11 +319,10 @@ public class ProductController {
         Product product = convertDtoToEntity(req);
 
         if (imageFile != null && !imageFile.isEmpty()) {
-            String savedFileName = ImageUtil.saveImageWithOrientation(
-                    imageFile,
-                    System.getProperty("user.dir") + "/upload"
-            );
+            String savedFileName = imageStoreService.store(imageFile);
             product.setProductImages(savedFileName);
+        } else if (req.getImageUploadId() != null) {
+            product.setProductImages(imageStoreService.storeUpload(req.getImageUploadId()));
         }
 
         String msg = productService.createProduct(product);
@@ -93,12 +330,22 @@ public class ProductController {
         if (msg != null) {
             return ResponseEntity.status(400).body(new BaseResponse(msg, false));
         }
+        generateDerivatives(product.getProductImages());
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new BaseResponse("Successfully Created Product", true));
     }
 
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk import products", description = "Stream a CSV (with header) or NDJSON body of products; rows are validated and inserted in batches")
+    public ResponseEntity<ImportResultDto> importProducts(HttpServletRequest request) throws IOException {
+        requireRole(request, jwtUtil, "ADMIN");
+        String format = request.getContentType() != null && request.getContentType().startsWith("text/csv")
+                ? ProductImportService.CSV : ProductImportService.NDJSON;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
+    }
+
     @PutMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<BaseResponse> updateProduct(
             @PathVariable(value = "id") Long id,
@@ -108,11 +355,10 @@ public class ProductController {
         Product productDetails = convertDtoToEntity(req);
 
         if (imageFile != null && !imageFile.isEmpty()) {
-            String savedFileName = ImageUtil.saveImageWithOrientation(
-                    imageFile,
-                    System.getProperty("user.dir") + "/upload"
-            );
+            String savedFileName = imageStoreService.store(imageFile);
             productDetails.setProductImages(savedFileName);
+        } else if (req.getImageUploadId() != null) {
+            productDetails.setProductImages(imageStoreService.storeUpload(req.getImageUploadId()));
         }
 
         String msg = productService.updateProduct(id, productDetails);
@@ -121,6 +367,9 @@ public class ProductController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new BaseResponse(msg, false));
         }
+        if (productDetails.getProductImages() != null) {
+            generateDerivatives(productDetails.getProductImages());
+        }
 
         return ResponseEntity.ok(new BaseResponse("Product Updated with id " + id, true));
     }
@@ -57,6 +57,7 @@ public class ShoppingCartController {
         ShoppingCartResponseDto dto = new ShoppingCartResponseDto();
         dto.setId(shoppingCart.getId());
         dto.setCartItems(shoppingCart.getCartItems());
+        dto.setTotalAmount(shoppingCartService.total(shoppingCart));
         
         ShoppingCartResponseDto.UserResponseDto userDto = new ShoppingCartResponseDto.UserResponseDto();
         userDto.setId(shoppingCart.getUser().getId());
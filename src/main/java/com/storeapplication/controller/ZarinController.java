@@ -10,6 +10,8 @@ import com.storeapplication.models.PaymentStatus;
 import com.storeapplication.repository.OrderRepository;
 import com.storeapplication.services.OrderService;
 import com.storeapplication.services.PaymentService;
+import com.storeapplication.services.StockReservationService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -27,11 +29,14 @@ public class ZarinController {
     private final PaymentService paymentService;
     private final OrderRepository orderRepository;
     private final OrderService orderService;
+    private final StockReservationService stockReservationService;
 
-    public ZarinController(PaymentService paymentService, OrderRepository orderRepository, OrderService orderService) {
+    public ZarinController(PaymentService paymentService, OrderRepository orderRepository, OrderService orderService,
+                           StockReservationService stockReservationService) {
         this.paymentService = paymentService;
         this.orderRepository = orderRepository;
         this.orderService = orderService;
+        this.stockReservationService = stockReservationService;
     }
 
     @PostMapping("/request")
@@ -79,10 +84,17 @@ public class ZarinController {
 
             if (code == 100 || code == 101) {
                 payment.setPaymentStatus(PaymentStatus.SUCCESS);
-                orderService.updateOrderStatus(payment.getOrder().getId(), OrderStatus.PAID);
+                String stockError = orderService.updateOrderStatus(payment.getOrder().getId(), OrderStatus.PAID);
+                if (stockError != null) {
+                    // the gateway took the money but the order is flagged for a refund instead of being paid
+                    paymentService.updatePayment(payment.getId(), payment.getPaymentStatus());
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(response.getBody());
+                }
             } else {
                 payment.setPaymentStatus(PaymentStatus.FAILED);
-                }
+                // don't keep the stock locked up until the hold expires
+                stockReservationService.releaseHolds(payment.getOrder().getId());
+            }
 
             paymentService.updatePayment(payment.getId(),payment.getPaymentStatus());
         }
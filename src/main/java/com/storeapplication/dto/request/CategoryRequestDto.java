@@ -11,6 +11,9 @@ public class CategoryRequestDto {
 
     private String categoryName;
 
+    // a finished resumable upload, used when no image part is sent
+    private String imageUploadId;
+
     public CategoryRequestDto(){}
 
 }
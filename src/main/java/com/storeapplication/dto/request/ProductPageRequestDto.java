@@ -0,0 +1,24 @@
+package com.storeapplication.dto.request;
+
+import com.storeapplication.models.ProductSort;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ProductPageRequestDto {
+
+    private Long categoryId;
+
+    private Float minPrice;
+
+    private Float maxPrice;
+
+    private Boolean inStock;
+
+    private ProductSort sort = ProductSort.NEWEST;
+
+    private String cursor;
+
+    private Integer size = 20;
+}
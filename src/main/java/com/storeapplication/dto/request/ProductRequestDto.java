@@ -19,4 +19,7 @@ public class ProductRequestDto {
     private Integer productQuantity;
 
     private Long categoryId;
+
+    // a finished resumable upload, used when no image part is sent
+    private String imageUploadId;
 }
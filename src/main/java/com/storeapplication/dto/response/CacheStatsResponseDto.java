@@ -0,0 +1,17 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsResponseDto {
+    private String name;
+    private Long size;
+    private Long hitCount;
+    private Long missCount;
+    private Long evictionCount;
+    private Double hitRate;
+}
@@ -0,0 +1,19 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogEventDto {
+    private Long id;
+    // PRODUCT or CATEGORY
+    private String entity;
+    // CREATED, UPDATED, DELETED or STOCK
+    private String action;
+    private Long entityId;
+    // the new state for CREATED and UPDATED, null otherwise
+    private Object data;
+}
@@ -0,0 +1,14 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetBucketDto {
+    private Double from;
+    private Double to;
+    private Integer count;
+}
@@ -0,0 +1,19 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetResponseDto {
+    private Integer total;
+    private Integer inStock;
+    private Map<Long, Integer> categories;
+    private List<FacetBucketDto> prices;
+    private List<FacetBucketDto> discounts;
+}
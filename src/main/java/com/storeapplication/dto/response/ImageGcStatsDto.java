@@ -0,0 +1,22 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageGcStatsDto {
+    private Boolean running;
+    private Long passes;
+    private Long filesScanned;
+    private Long filesDeleted;
+    private Long bytesReclaimed;
+    private Long failures;
+    private Integer referencedImages;
+    private Long lastPassMillis;
+    private LocalDateTime lastPassFinishedAt;
+}
@@ -0,0 +1,21 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageWorkerStatsDto {
+    private Integer workers;
+    private Integer activeWorkers;
+    private Integer queueDepth;
+    private Integer queueCapacity;
+    private Long completed;
+    private Long failed;
+    private Long rejected;
+    private Double averageWaitMillis;
+    private Double averageRunMillis;
+    private Double maxRunMillis;
+}
@@ -0,0 +1,25 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResultDto {
+    private Integer imported = 0;
+    private Integer failed = 0;
+    private List<RowErrorDto> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowErrorDto {
+        private Long line;
+        private String message;
+    }
+}
@@ -0,0 +1,18 @@
+package com.storeapplication.dto.response;
+
+import com.storeapplication.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDetailResponseDto {
+    private Product product;
+    private List<CommentResponseDto> comments;
+    private Long commentCount;
+    private Boolean inWishList;
+}
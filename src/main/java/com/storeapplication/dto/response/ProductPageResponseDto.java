@@ -0,0 +1,17 @@
+package com.storeapplication.dto.response;
+
+import com.storeapplication.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageResponseDto {
+    private List<Product> items;
+    private String nextCursor;
+    private Boolean hasNext;
+}
@@ -18,5 +18,7 @@ public class ProductResponseDto {
 
     private String productImages;
 
+    private String imageSizes;
+
     private Long categoryId;
 }
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -14,6 +15,7 @@ public class ShoppingCartResponseDto {
     private Long id;
     private UserResponseDto user;
     private List<CartItem> cartItems;
+    private BigDecimal totalAmount;
 
     @Data
     @AllArgsConstructor
@@ -0,0 +1,15 @@
+package com.storeapplication.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatusDto {
+    private String uploadId;
+    private Long offset;
+    private Long size;
+    private Boolean complete;
+}
@@ -1,5 +1,6 @@
 package com.storeapplication.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
@@ -10,6 +11,7 @@ import lombok.NoArgsConstructor;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "categories")
 public class Category {
 
@@ -25,4 +27,13 @@ public class Category {
     @Column(nullable = false)
     private String categoryImage;
 
+    // comma separated ImageSize keys whose derivative of categoryImage is ready
+    private String imageSizes;
+
+    public Category(Long id, String name, String categoryImage) {
+        this.id = id;
+        this.name = name;
+        this.categoryImage = categoryImage;
+    }
+
 }
@@ -0,0 +1,35 @@
+package com.storeapplication.models;
+
+import java.util.Locale;
+
+// Derivatives generated for every uploaded image, bounded by their longest edge in pixels.
+public enum ImageSize {
+    THUMB(160), CARD(480), ZOOM(1200);
+
+    private final int maxEdge;
+
+    ImageSize(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // unknown or missing names mean the original
+    public static ImageSize fromKey(String key) {
+        if (key == null) {
+            return null;
+        }
+        for (ImageSize size : values()) {
+            if (size.key().equalsIgnoreCase(key.trim())) {
+                return size;
+            }
+        }
+        return null;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import java.math.BigDecimal;
@@ -18,6 +19,13 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "orders")
+@NamedEntityGraph(name = "Order.lines",
+        attributeNodes = @NamedAttributeNode(value = "orderProducts", subgraph = "lines"),
+        subgraphs = {
+                @NamedSubgraph(name = "lines", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product")),
+                @NamedSubgraph(name = "product", attributeNodes = @NamedAttributeNode("category"))
+        })
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -38,6 +46,9 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status = OrderStatus.PENDING;
 
+    // paid, but the stock was gone by the time the payment arrived; the order stays unpaid and the payment is refunded
+    private Boolean refundRequired = false;
+
 
     private BigDecimal totalAmount;
 
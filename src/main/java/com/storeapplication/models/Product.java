@@ -1,5 +1,7 @@
 package com.storeapplication.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.storeapplication.utils.Money;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -7,11 +9,19 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @Entity
 @NoArgsConstructor
-@Table(name = "products")
-
+@NamedEntityGraph(name = "Product.category", attributeNodes = @NamedAttributeNode("category"))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_id", columnList = "category_id, productId"),
+        @Index(name = "idx_products_price_id", columnList = "productPrice, productId"),
+        @Index(name = "idx_products_name_id", columnList = "productName, productId"),
+        @Index(name = "idx_products_quantity", columnList = "productQuantity")
+})
 public class Product {
 
     @Id
@@ -32,12 +42,22 @@ public class Product {
     @Min(value = 0, message = "Discount cannot be negative")
     private Integer productDiscount;
 
+    // only conditional UPDATEs move stock; a saved copy read earlier must not write its value back
     @Min(value = 0, message = "Quantity cannot be negative")
+    @Column(updatable = false)
     private Integer productQuantity;
 
     private String productImages;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // comma separated ImageSize keys whose derivative of productImages is ready
+    private String imageSizes;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
-}
\ No newline at end of file
+
+    // what the customer pays per unit after productDiscount (a percentage)
+    public BigDecimal getEffectivePrice() {
+        return Money.toBigDecimal(Money.effectivePrice(productPrice, productDiscount));
+    }
+}
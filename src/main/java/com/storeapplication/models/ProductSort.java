@@ -0,0 +1,5 @@
+package com.storeapplication.models;
+
+public enum ProductSort {
+    NEWEST, PRICE_ASC, PRICE_DESC, NAME_ASC
+}
@@ -0,0 +1,5 @@
+package com.storeapplication.models;
+
+public enum ReservationStatus {
+    HELD, COMMITTED, RELEASED, EXPIRED
+}
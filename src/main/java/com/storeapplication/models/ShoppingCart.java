@@ -11,6 +11,15 @@ import java.util.List;
 
 
 @Entity
+@NamedEntityGraph(name = "ShoppingCart.items",
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode(value = "cartItems", subgraph = "items")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product")),
+                @NamedSubgraph(name = "product", attributeNodes = @NamedAttributeNode("category"))
+        })
 @Getter
 @Setter
 @AllArgsConstructor
@@ -20,7 +29,7 @@ public class ShoppingCart {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -0,0 +1,30 @@
+package com.storeapplication.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Append-only journal of stock changes for hot products; rows are deleted as they are applied to products.
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_ledger")
+public class StockLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int delta;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
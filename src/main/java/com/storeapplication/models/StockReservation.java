@@ -0,0 +1,43 @@
+package com.storeapplication.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expiresAt"),
+        @Index(name = "idx_stock_reservations_order", columnList = "orderId")
+})
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private Long orderId;
+
+    // the order line this hold was taken for, so deleting a line releases exactly its hold
+    private Long orderProductId;
+
+    private int quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status = ReservationStatus.HELD;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.storeapplication.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// One row per distinct image in the content store; refCount is how many products and categories point at it.
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stored_images")
+public class StoredImage {
+
+    // SHA-256 of the uploaded bytes, also the file name
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private int refCount;
+
+    private long size;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // last time a reference was taken; the orphan collector leaves recently retained files alone
+    private LocalDateTime retainedAt;
+}
@@ -1,6 +1,7 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,6 +10,7 @@ import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem,Long> {
+    @EntityGraph(attributePaths = {"product", "product.category"})
     List<CartItem> findByCartId(Long cartId);
     Optional<CartItem> findByCartIdAndProductProductId(Long cartId, Long productId);
 }
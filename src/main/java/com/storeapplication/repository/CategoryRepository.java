@@ -1,12 +1,36 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.Category;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByName (String name);
+
+    @Query("SELECT c.id FROM Category c WHERE c.categoryImage = :image")
+    List<Long> findIdsByImage(String image);
+
+    // only the one column, so a concurrent edit of the category is not overwritten
+    @Modifying
+    @Transactional
+    @Query("UPDATE Category c SET c.imageSizes = :sizes WHERE c.categoryImage = :image")
+    int updateImageSizes(String image, String sizes);
+
+    @Query("SELECT DISTINCT c.categoryImage FROM Category c WHERE c.categoryImage IS NOT NULL")
+    List<String> findAllImages();
+
+    @Query("SELECT DISTINCT c.categoryImage FROM Category c WHERE c.categoryImage IS NOT NULL AND c.imageSizes IS NULL")
+    List<String> findImagesWithoutSizes(Pageable pageable);
+
+    // by file name, as in ProductRepository
+    @Query("SELECT COUNT(c) FROM Category c WHERE c.categoryImage LIKE CONCAT('%', :fileName)")
+    long countByImageFileName(String fileName);
 }
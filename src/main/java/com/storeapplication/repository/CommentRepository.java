@@ -1,11 +1,22 @@
 package com.storeapplication.repository;
 
+import com.storeapplication.dto.response.CommentResponseDto;
 import com.storeapplication.models.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface CommentRepository extends JpaRepository<Comment,Long> {
+    @EntityGraph("Comment.user")
     List<Comment> findByProduct_ProductId(Long productId);
+
+    @Query("SELECT new com.storeapplication.dto.response.CommentResponseDto(c.id, c.comment, u.username) "
+            + "FROM Comment c JOIN c.user u WHERE c.product.productId = :productId ORDER BY c.id DESC")
+    List<CommentResponseDto> findPageByProductId(Long productId, Pageable pageable);
+
+    long countByProduct_ProductId(Long productId);
 }
@@ -4,6 +4,12 @@ import com.storeapplication.models.CartItem;
 import com.storeapplication.models.Order;
 import com.storeapplication.models.OrderProduct;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface OrderProductRepository extends JpaRepository<OrderProduct,Long> {
+
+    @Query("SELECT op.product.productId, SUM(op.quantity) FROM OrderProduct op GROUP BY op.product.productId")
+    List<Object[]> sumQuantityByProduct();
 }
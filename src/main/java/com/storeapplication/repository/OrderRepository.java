@@ -1,11 +1,35 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.Order;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface OrderRepository extends JpaRepository<Order,Long> {
+
+    // orders are returned with their lines, each line with its product and category
+    @Override
+    @EntityGraph("Order.lines")
+    List<Order> findAll();
+
+    @EntityGraph("Order.lines")
+    Optional<Order> findWithLinesById(Long id);
+
+    @EntityGraph("Order.lines")
     List<Order> findByUserId(Long id);
+
+    // one row per order line; orders without lines still appear once with empty line columns
+    @Query("SELECT o.id, o.userId, o.date, o.status, o.totalAmount, p.productId, op.quantity, op.priceAtOrderTime "
+            + "FROM Order o LEFT JOIN o.orderProducts op LEFT JOIN op.product p ORDER BY o.id, op.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Object[]> streamForExport();
 }
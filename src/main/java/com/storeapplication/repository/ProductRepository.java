@@ -1,12 +1,72 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // products are serialized with their category everywhere, so the listing reads join it up front
+    @Override
+    @EntityGraph("Product.category")
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph("Product.category")
+    Optional<Product> findById(Long id);
+
     Optional<Product> findByProductNameAndCategoryId(String productName,Long categoryId);
-}
\ No newline at end of file
+    @EntityGraph("Product.category")
+    List<Product> findByCategoryId(Long categoryId);
+
+    @Query("SELECT p.productId, p.productName, p.productDescription, p.productPrice, p.productDiscount, "
+            + "p.productQuantity, p.productImages, c.id, c.name FROM Product p LEFT JOIN p.category c ORDER BY p.productId")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Object[]> streamForExport();
+
+    // the WHERE clause is the oversell guard: the row lock serializes concurrent
+    // decrements and a decrement that would go below zero matches no row
+    @Modifying
+    @Query("UPDATE Product p SET p.productQuantity = p.productQuantity - :quantity "
+            + "WHERE p.productId = :id AND p.productQuantity >= :quantity")
+    int decrementStock(Long id, int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.productQuantity = p.productQuantity + :quantity WHERE p.productId = :id")
+    int incrementStock(Long id, int quantity);
+
+    @Query("SELECT p.productId FROM Product p WHERE p.productImages = :image")
+    List<Long> findIdsByImage(String image);
+
+    // only the one column, so stock moving at the same time is not overwritten
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.imageSizes = :sizes WHERE p.productImages = :image")
+    int updateImageSizes(String image, String sizes);
+
+    @Query("SELECT DISTINCT p.productImages FROM Product p WHERE p.productImages IS NOT NULL")
+    List<String> findAllImages();
+
+    // images whose derivatives were never recorded
+    @Query("SELECT DISTINCT p.productImages FROM Product p WHERE p.productImages IS NOT NULL AND p.imageSizes IS NULL")
+    List<String> findImagesWithoutSizes(Pageable pageable);
+
+    // stored values are full paths from whichever directory the app ran in, so only the name is compared
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.productImages LIKE CONCAT('%', :fileName)")
+    long countByImageFileName(String fileName);
+}
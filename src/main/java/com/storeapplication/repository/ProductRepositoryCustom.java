@@ -0,0 +1,10 @@
+package com.storeapplication.repository;
+
+import com.storeapplication.dto.request.ProductPageRequestDto;
+import com.storeapplication.models.Product;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    List<Product> findPage(ProductPageRequestDto filter, Object afterValue, Long afterId, int limit);
+}
@@ -0,0 +1,88 @@
+package com.storeapplication.repository;
+
+import com.storeapplication.dto.request.ProductPageRequestDto;
+import com.storeapplication.models.Product;
+import com.storeapplication.models.ProductSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Keyset pagination: every sort ends with productId so the order is total and
+    // the next page starts strictly after the last row instead of using OFFSET.
+    @Override
+    public List<Product> findPage(ProductPageRequestDto filter, Object afterValue, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+        root.fetch("category", JoinType.LEFT);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCategoryId() != null) {
+            predicates.add(cb.equal(root.get("category").get("id"), filter.getCategoryId()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("productPrice"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(root.get("productPrice"), filter.getMaxPrice()));
+        }
+        if (Boolean.TRUE.equals(filter.getInStock())) {
+            predicates.add(cb.greaterThan(root.get("productQuantity"), 0));
+        }
+
+        Path<Long> id = root.get("productId");
+        Path<Float> price = root.get("productPrice");
+        Path<String> name = root.get("productName");
+        ProductSort sort = filter.getSort() == null ? ProductSort.NEWEST : filter.getSort();
+
+        switch (sort) {
+            case PRICE_ASC -> {
+                if (afterId != null) {
+                    predicates.add(after(cb, price, (Float) afterValue, id, afterId, true));
+                }
+                query.orderBy(cb.asc(price), cb.asc(id));
+            }
+            case PRICE_DESC -> {
+                if (afterId != null) {
+                    predicates.add(after(cb, price, (Float) afterValue, id, afterId, false));
+                }
+                query.orderBy(cb.desc(price), cb.desc(id));
+            }
+            case NAME_ASC -> {
+                if (afterId != null) {
+                    predicates.add(after(cb, name, (String) afterValue, id, afterId, true));
+                }
+                query.orderBy(cb.asc(name), cb.asc(id));
+            }
+            default -> {
+                if (afterId != null) {
+                    predicates.add(cb.lessThan(id, afterId));
+                }
+                query.orderBy(cb.desc(id));
+            }
+        }
+
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> path, T value,
+                                                              Path<Long> id, Long afterId, boolean ascending) {
+        if (ascending) {
+            return cb.or(cb.greaterThan(path, value),
+                    cb.and(cb.equal(path, value), cb.greaterThan(id, afterId)));
+        }
+        return cb.or(cb.lessThan(path, value),
+                cb.and(cb.equal(path, value), cb.lessThan(id, afterId)));
+    }
+}
@@ -1,12 +1,14 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.ShoppingCart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 @Repository
 public interface ShoppingCartRepository extends JpaRepository<ShoppingCart,Long> {
+    @EntityGraph("ShoppingCart.items")
     Optional<ShoppingCart> findByUserId(Long user_id);
 
 }
@@ -0,0 +1,9 @@
+package com.storeapplication.repository;
+
+import com.storeapplication.models.StockLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockLedgerRepository extends JpaRepository<StockLedgerEntry, Long> {
+}
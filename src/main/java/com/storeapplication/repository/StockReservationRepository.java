@@ -0,0 +1,32 @@
+package com.storeapplication.repository;
+
+import com.storeapplication.models.ReservationStatus;
+import com.storeapplication.models.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderIdAndStatus(Long orderId, ReservationStatus status);
+
+    List<StockReservation> findByOrderIdAndProductIdAndStatus(Long orderId, Long productId, ReservationStatus status);
+
+    List<StockReservation> findByStatusAndExpiresAtBefore(ReservationStatus status, LocalDateTime time, Pageable pageable);
+
+    long countByProductIdAndStatus(Long productId, ReservationStatus status);
+
+    List<StockReservation> findByProductId(Long productId);
+
+    // compare-and-set on the status, so a hold is settled exactly once even when
+    // payment, cancellation and the expiry sweep race for it
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.id = :id AND r.status = :from")
+    int transition(Long id, ReservationStatus from, ReservationStatus to);
+}
@@ -0,0 +1,30 @@
+package com.storeapplication.repository;
+
+import com.storeapplication.models.StoredImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stored_images (hash, ref_count, size, created_at, retained_at) VALUES (:hash, 1, :size, :now, :now) "
+            + "ON CONFLICT (hash) DO UPDATE SET ref_count = stored_images.ref_count + 1, retained_at = :now", nativeQuery = true)
+    void retain(String hash, long size, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredImage s SET s.refCount = s.refCount - 1 WHERE s.hash = :hash AND s.refCount > 0")
+    int release(String hash);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredImage s WHERE s.hash = :hash AND s.refCount = 0")
+    int deleteUnreferenced(String hash);
+}
@@ -1,6 +1,7 @@
 package com.storeapplication.repository;
 
 import com.storeapplication.models.WishList;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +9,7 @@ import java.util.List;
 
 @Repository
 public interface WishListRepository extends JpaRepository<WishList, Long> {
+    @EntityGraph(attributePaths = {"user", "product", "product.category"})
     List<WishList> findByUserId(Long userId);
+    boolean existsByUserIdAndProductProductId(Long userId, Long productId);
 }
@@ -21,11 +21,14 @@ public class CartItemService {
     private final CartItemRepository cartItemRepository;
     private final ShoppingCartRepository shoppingCartRepository;
     private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
 
-    public CartItemService(CartItemRepository cartItemRepository, ShoppingCartRepository shoppingCartRepository, ProductRepository productRepository) {
+    public CartItemService(CartItemRepository cartItemRepository, ShoppingCartRepository shoppingCartRepository, ProductRepository productRepository,
+                           StockReservationService stockReservationService) {
         this.cartItemRepository = cartItemRepository;
         this.shoppingCartRepository = shoppingCartRepository;
         this.productRepository = productRepository;
+        this.stockReservationService = stockReservationService;
     }
 
     public List<CartItem> findByCartId(Long cartId) {
@@ -42,6 +45,13 @@ public class CartItemService {
         if (product == null) {
             return "product not found with id " + cartItem.getProduct().getProductId();
         }
+        // the cart only checks availability, stock is held when the order line is created
+        if (cartItem.getQuantity() == null || cartItem.getQuantity() <= 0) {
+            return "quantity must be greater than 0";
+        }
+        if (stockReservationService.availableStock(product) < cartItem.getQuantity()) {
+            return "not enough stock for product " + product.getProductId();
+        }
 
         cartItemRepository.save(cartItem);
         return null;
@@ -77,6 +87,10 @@ public class CartItemService {
         if (product == null) {
             return "product not found with id " + updatedCartItem.getProduct().getProductId();
         }
+        if (updatedCartItem.getQuantity() != null && updatedCartItem.getQuantity() > 0
+                && stockReservationService.availableStock(product) < updatedCartItem.getQuantity()) {
+            return "not enough stock for product " + product.getProductId();
+        }
 
         // Update the existing cart item with new values
         if (updatedCartItem.getQuantity() != null && updatedCartItem.getQuantity() > 0) {
@@ -105,6 +119,9 @@ public class CartItemService {
         if (newQuantity <= 0) {
             return "quantity must be greater than 0";
         }
+        if (stockReservationService.availableStock(existingCartItem.getProduct()) < newQuantity) {
+            return "not enough stock for product " + existingCartItem.getProduct().getProductId();
+        }
 
         existingCartItem.setQuantity(newQuantity);
         cartItemRepository.save(existingCartItem);
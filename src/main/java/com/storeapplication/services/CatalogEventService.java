@@ -0,0 +1,250 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.CatalogEventDto;
+import com.storeapplication.dto.response.ProductResponseDto;
+import com.storeapplication.models.Category;
+import com.storeapplication.models.Product;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Service
+public class CatalogEventService {
+
+    public static final String PRODUCT = "PRODUCT";
+    public static final String CATEGORY = "CATEGORY";
+    public static final String CATALOG = "CATALOG";
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+    public static final String STOCK = "STOCK";
+    public static final String RELOAD = "RELOAD";
+
+    // tells a client its position is gone and it has to reload the lists once
+    private static final String RESET = "reset";
+    private static final long HEARTBEAT_MILLIS = 15_000;
+
+    private final int historySize;
+    private final int bufferSize;
+    private final long coalesceMillis;
+
+    // ring of the latest events, for Last-Event-ID resumes
+    private final CatalogEventDto[] history;
+    private long sequence = 0;
+    private final Object lock = new Object();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // each subscriber blocks on its own socket writes, so one slow client never holds up the rest
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CatalogEventService(@Value("${app.events.history-size:1024}") int historySize,
+                               @Value("${app.events.buffer-size:256}") int bufferSize,
+                               @Value("${app.events.coalesce-ms:250}") long coalesceMillis) {
+        this.historySize = historySize;
+        this.bufferSize = bufferSize;
+        this.coalesceMillis = coalesceMillis;
+        this.history = new CatalogEventDto[historySize];
+    }
+
+    public void productChanged(String action, Product product) {
+        publish(PRODUCT, action, product.getProductId(), toDto(product));
+    }
+
+    public void productDeleted(Long id) {
+        publish(PRODUCT, DELETED, id, null);
+    }
+
+    // stock moves on every checkout; subscribers only learn that it moved and coalescing keeps it to one event per window
+    public void stockChanged(Long productId) {
+        publish(PRODUCT, STOCK, productId, null);
+    }
+
+    public void categoryChanged(String action, Category category) {
+        Category copy = new Category(category.getId(), category.getName(), category.getCategoryImage());
+        copy.setImageSizes(category.getImageSizes());
+        publish(CATEGORY, action, category.getId(), copy);
+    }
+
+    public void categoryDeleted(Long id) {
+        publish(CATEGORY, DELETED, id, null);
+    }
+
+    // bulk changes such as an import are one event telling clients to reload, not one per row
+    public void catalogReloaded() {
+        publish(CATALOG, RELOAD, 0L, null);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        // replay and registration happen under the publish lock, so no event falls in between
+        synchronized (lock) {
+            Long after = parseId(lastEventId);
+            if (after != null) {
+                long oldest = Math.max(1, sequence - historySize + 1);
+                if (after < oldest - 1 || after > sequence) {
+                    subscriber.overflow();
+                } else {
+                    for (long id = after + 1; id <= sequence; id++) {
+                        subscriber.offer(history[(int) (id % historySize)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        senders.submit(subscriber);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        senders.shutdownNow();
+    }
+
+    private void publish(String entity, String action, Long entityId, Object data) {
+        if (entityId == null) {
+            return;
+        }
+        synchronized (lock) {
+            CatalogEventDto event = new CatalogEventDto(++sequence, entity, action, entityId, data);
+            history[(int) (event.getId() % historySize)] = event;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    private static ProductResponseDto toDto(Product product) {
+        ProductResponseDto dto = new ProductResponseDto();
+        dto.setId(product.getProductId());
+        dto.setProductName(product.getProductName());
+        dto.setProductDescription(product.getProductDescription());
+        dto.setProductPrice(product.getProductPrice());
+        dto.setProductDiscount(product.getProductDiscount());
+        dto.setProductQuantity(product.getProductQuantity());
+        dto.setProductImages(product.getProductImages());
+        dto.setImageSizes(product.getImageSizes());
+        dto.setCategoryId(product.getCategory() == null ? null : product.getCategory().getId());
+        return dto;
+    }
+
+    private static Long parseId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        // keyed by entity, so a newer change replaces the queued one instead of queueing behind it
+        private final LinkedHashMap<String, CatalogEventDto> pending = new LinkedHashMap<>();
+        private boolean overflowed;
+        private boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private synchronized void offer(CatalogEventDto event) {
+            if (closed || overflowed) {
+                return;
+            }
+            String key = event.getEntity() + ":" + event.getEntityId();
+            // a stock move carries no data, so it queues beside a pending change of the product, never over it
+            if (STOCK.equals(event.getAction())) {
+                key += ":" + STOCK;
+            }
+            // re-inserting keeps the map in id order, the resume position stays meaningful
+            pending.remove(key);
+            pending.put(key, event);
+            if (pending.size() > bufferSize) {
+                overflow();
+            }
+            notifyAll();
+        }
+
+        // a client too far behind gets one reset instead of an unbounded backlog
+        private synchronized void overflow() {
+            pending.clear();
+            overflowed = true;
+            notifyAll();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            subscribers.remove(this);
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<CatalogEventDto> batch;
+                    boolean reset;
+                    synchronized (this) {
+                        if (!closed && pending.isEmpty() && !overflowed) {
+                            wait(HEARTBEAT_MILLIS);
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        batch = new ArrayList<>(pending.values());
+                        pending.clear();
+                        reset = overflowed;
+                        overflowed = false;
+                    }
+
+                    if (reset) {
+                        long position;
+                        synchronized (lock) {
+                            position = sequence;
+                        }
+                        emitter.send(SseEmitter.event().id(Long.toString(position)).name(RESET).data(position));
+                    } else if (batch.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                    for (CatalogEventDto event : batch) {
+                        emitter.send(SseEmitter.event().id(Long.toString(event.getId()))
+                                .name(event.getEntity().toLowerCase()).data(event));
+                    }
+                    // changes arriving during this pause are merged before the next write
+                    Thread.sleep(coalesceMillis);
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } finally {
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.storeapplication.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CatalogVersionService {
+
+    // counters restart with the process, so every tag carries the start time to stay unique
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+    private final Map<Long, AtomicLong> productVersions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> categoryVersions = new ConcurrentHashMap<>();
+
+    public void productChanged(Long id) {
+        if (id != null) {
+            productVersions.computeIfAbsent(id, key -> new AtomicLong()).incrementAndGet();
+        }
+        products.incrementAndGet();
+    }
+
+    public void productsChanged() {
+        products.incrementAndGet();
+    }
+
+    // products embed their category, so a category change also invalidates every product tag
+    public void categoryChanged(Long id) {
+        if (id != null) {
+            categoryVersions.computeIfAbsent(id, key -> new AtomicLong()).incrementAndGet();
+        }
+        categories.incrementAndGet();
+    }
+
+    public String productListTag() {
+        return tag("pl", products.get(), categories.get());
+    }
+
+    public String productTag(Long id) {
+        return tag("p" + id, version(productVersions, id), categories.get());
+    }
+
+    public String categoryListTag() {
+        return tag("cl", categories.get(), 0);
+    }
+
+    public String categoryTag(Long id) {
+        return tag("c" + id, version(categoryVersions, id), 0);
+    }
+
+    private String tag(String scope, long version, long dependency) {
+        return "\"" + scope + "-" + epoch + "-" + version + "-" + dependency + "\"";
+    }
+
+    private long version(Map<Long, AtomicLong> versions, Long id) {
+        AtomicLong version = versions.get(id);
+        return version == null ? 0 : version.get();
+    }
+}
@@ -1,13 +1,18 @@
 package com.storeapplication.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.storeapplication.models.Category;
 import com.storeapplication.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class CategoryService {
@@ -15,10 +20,49 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private CatalogEventService catalogEventService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
+    // the category list is tiny and read on every storefront page, so keep it already encoded
+    private volatile EncodedCategories encodedCategories;
+
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
+    public EncodedCategories getAllCategoriesEncoded() throws IOException {
+        // the tag is read before the query, so a concurrent write can only make the entry look older than it is
+        String etag = catalogVersionService.categoryListTag();
+        EncodedCategories cached = encodedCategories;
+        if (cached != null && cached.getEtag().equals(etag)) {
+            return cached;
+        }
+
+        byte[] json = objectMapper.writeValueAsBytes(categoryRepository.findAll());
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 2 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(json);
+        }
+        cached = new EncodedCategories(etag, json, gzip.toByteArray());
+        encodedCategories = cached;
+        return cached;
+    }
+
     public Optional<Category> getCategoryById(Long id) {
         return categoryRepository.findById(id);
     }
@@ -26,10 +70,15 @@ public class CategoryService {
     public String createCategory(Category category) throws IOException {
         Category cat = categoryRepository.findByName(category.getName()).orElse(null);
         if (cat != null) {
+            imageStoreService.release(category.getCategoryImage());
             return "Category Exist";
         }
 
         categoryRepository.save(category);
+        suggestService.putCategory(category);
+        catalogVersionService.categoryChanged(category.getId());
+        catalogEventService.categoryChanged(CatalogEventService.CREATED, category);
+        encodedCategories = null;
         return null;
     }
 
@@ -38,21 +87,51 @@ public class CategoryService {
                 .orElse(null);
 
         if (category == null) {
+            imageStoreService.release(categoryDetails.getCategoryImage());
             return "Category Not Found";
         }
+        String oldImage = category.getCategoryImage();
 
         if (categoryDetails.getName() != null) {
             category.setName(categoryDetails.getName());
         }
 
-        if (category.getCategoryImage() != null) {
-            category.setCategoryImage(category.getCategoryImage());
+        if (categoryDetails.getCategoryImage() != null
+                && !categoryDetails.getCategoryImage().equals(category.getCategoryImage())) {
+            category.setCategoryImage(categoryDetails.getCategoryImage());
+            // derivatives of the new image are recorded once they are generated
+            category.setImageSizes(null);
         }
 
         categoryRepository.save(category);
+        // a new upload already holds its reference; the replaced image, or the duplicate reference
+        // of the same image uploaded again, is given back
+        if (categoryDetails.getCategoryImage() != null) {
+            imageStoreService.release(oldImage);
+        }
+        // cached products embed their category
+        productCacheService.evictAll();
+        suggestService.putCategory(category);
+        catalogVersionService.categoryChanged(id);
+        catalogEventService.categoryChanged(CatalogEventService.UPDATED, category);
+        encodedCategories = null;
         return null;
     }
 
+    public void recordImageSizes(String image, String sizes) {
+        List<Long> ids = categoryRepository.findIdsByImage(image);
+        if (ids.isEmpty() || categoryRepository.updateImageSizes(image, sizes) == 0) {
+            return;
+        }
+        productCacheService.evictAll();
+        for (Long id : ids) {
+            categoryRepository.findById(id).ifPresent(category ->
+                    catalogEventService.categoryChanged(CatalogEventService.UPDATED, category));
+            catalogVersionService.categoryChanged(id);
+        }
+        encodedCategories = null;
+    }
+
     public String deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElse(null);
@@ -60,6 +139,20 @@ public class CategoryService {
             return "Category Not Found";
         }
         categoryRepository.delete(category);
+        imageStoreService.release(category.getCategoryImage());
+        productCacheService.evictAll();
+        suggestService.removeCategory(id);
+        catalogVersionService.categoryChanged(id);
+        catalogEventService.categoryDeleted(id);
+        encodedCategories = null;
         return null;
     }
-}
\ No newline at end of file
+
+    @Getter
+    @AllArgsConstructor
+    public static class EncodedCategories {
+        private final String etag;
+        private final byte[] json;
+        private final byte[] gzip;
+    }
+}
@@ -0,0 +1,55 @@
+package com.storeapplication.services;
+
+import com.storeapplication.repository.OrderRepository;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.utils.ExportWriter;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ExportService {
+
+    private static final String[] PRODUCT_COLUMNS = {"productId", "productName", "productDescription", "productPrice",
+            "productDiscount", "productQuantity", "productImages", "categoryId", "categoryName"};
+
+    private static final String[] ORDER_COLUMNS = {"orderId", "userId", "date", "status", "totalAmount",
+            "productId", "quantity", "priceAtOrderTime"};
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+
+    public ExportService(ProductRepository productRepository, OrderRepository orderRepository) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    // The stream is backed by a server-side cursor (fetch size on the query), and rows are
+    // scalar tuples, so nothing accumulates in the persistence context while we write.
+    @Transactional
+    public void exportProducts(OutputStream out, String format) throws IOException {
+        try (Stream<Object[]> rows = productRepository.streamForExport()) {
+            write(rows, out, format, PRODUCT_COLUMNS);
+        }
+    }
+
+    @Transactional
+    public void exportOrders(OutputStream out, String format) throws IOException {
+        try (Stream<Object[]> rows = orderRepository.streamForExport()) {
+            write(rows, out, format, ORDER_COLUMNS);
+        }
+    }
+
+    private void write(Stream<Object[]> rows, OutputStream out, String format, String[] columns) throws IOException {
+        try (ExportWriter writer = new ExportWriter(out, format, columns)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.request.ProductPageRequestDto;
+import com.storeapplication.dto.response.FacetBucketDto;
+import com.storeapplication.dto.response.FacetResponseDto;
+import com.storeapplication.models.Product;
+import com.storeapplication.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class FacetService {
+
+    // bucket lower bounds; the last bucket is open ended
+    private static final double[] PRICE_BOUNDS = {0, 100_000, 500_000, 1_000_000, 5_000_000};
+    private static final double[] DISCOUNT_BOUNDS = {0, 1, 11, 26, 51};
+
+    private static final long NO_CATEGORY = 0L;
+
+    private final ProductRepository productRepository;
+
+    // one row per product, one primitive array per field
+    private long[] ids = new long[0];
+    private long[] categoryIds = new long[0];
+    private float[] prices = new float[0];
+    private int[] discounts = new int[0];
+    private int[] quantities = new int[0];
+    private int size = 0;
+    private final Map<Long, Integer> rows = new HashMap<>();
+    // rows of removed products, handed to the next insert so churn never grows the arrays past the peak count
+    private final BitSet free = new BitSet();
+
+    // row bitsets per facet value; deleted rows are cleared everywhere
+    private final BitSet live = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final BitSet[] byPrice = newBitSets(PRICE_BOUNDS.length);
+    private final BitSet[] byDiscount = newBitSets(DISCOUNT_BOUNDS.length);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FacetService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            int capacity = Math.max(16, products.size());
+            ids = new long[capacity];
+            categoryIds = new long[capacity];
+            prices = new float[capacity];
+            discounts = new int[capacity];
+            quantities = new int[capacity];
+            size = 0;
+            rows.clear();
+            free.clear();
+            live.clear();
+            inStock.clear();
+            byCategory.clear();
+            Arrays.stream(byPrice).forEach(BitSet::clear);
+            Arrays.stream(byDiscount).forEach(BitSet::clear);
+            for (Product product : products) {
+                upsertRow(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            upsertRow(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.remove(productId);
+            if (row != null) {
+                clearRow(row);
+                live.clear(row);
+                free.set(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // reservations move stock without touching the other columns
+    public void adjustQuantity(Long productId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rows.get(productId);
+            if (row != null) {
+                quantities[row] = Math.max(0, quantities[row] + delta);
+                inStock.set(row, quantities[row] > 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Every facet is counted under all active filters except its own dimension,
+    // so picking a category still shows how many products the other categories hold.
+    public FacetResponseDto facets(ProductPageRequestDto filter) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryFilter = live;
+            if (filter.getCategoryId() != null) {
+                categoryFilter = byCategory.getOrDefault(filter.getCategoryId(), new BitSet());
+            }
+            BitSet priceFilter = live;
+            if (filter.getMinPrice() != null || filter.getMaxPrice() != null) {
+                priceFilter = priceRange(filter.getMinPrice(), filter.getMaxPrice());
+            }
+            BitSet stockFilter = Boolean.TRUE.equals(filter.getInStock()) ? inStock : live;
+
+            BitSet all = intersect(live, categoryFilter, priceFilter, stockFilter);
+
+            BitSet withoutCategory = intersect(live, priceFilter, stockFilter);
+            Map<Long, Integer> categories = new TreeMap<>();
+            for (Map.Entry<Long, BitSet> entry : byCategory.entrySet()) {
+                int count = countAnd(withoutCategory, entry.getValue());
+                if (count > 0) {
+                    categories.put(entry.getKey(), count);
+                }
+            }
+
+            BitSet withoutPrice = intersect(live, categoryFilter, stockFilter);
+            List<FacetBucketDto> priceBuckets = buckets(PRICE_BOUNDS, byPrice, withoutPrice);
+            List<FacetBucketDto> discountBuckets = buckets(DISCOUNT_BOUNDS, byDiscount, all);
+            int inStockCount = countAnd(intersect(live, categoryFilter, priceFilter), inStock);
+
+            return new FacetResponseDto(all.cardinality(), inStockCount, categories, priceBuckets, discountBuckets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void upsertRow(Product product) {
+        Integer row = rows.get(product.getProductId());
+        if (row == null) {
+            row = free.nextSetBit(0);
+            if (row >= 0) {
+                free.clear(row);
+            } else {
+                row = size++;
+                ensureCapacity(size);
+            }
+            rows.put(product.getProductId(), row);
+        } else {
+            clearRow(row);
+        }
+
+        ids[row] = product.getProductId();
+        categoryIds[row] = product.getCategory() == null || product.getCategory().getId() == null
+                ? NO_CATEGORY : product.getCategory().getId();
+        prices[row] = product.getProductPrice() == null ? 0f : product.getProductPrice();
+        discounts[row] = product.getProductDiscount() == null ? 0 : product.getProductDiscount();
+        quantities[row] = product.getProductQuantity() == null ? 0 : product.getProductQuantity();
+
+        live.set(row);
+        if (categoryIds[row] != NO_CATEGORY) {
+            byCategory.computeIfAbsent(categoryIds[row], key -> new BitSet()).set(row);
+        }
+        byPrice[bucketOf(PRICE_BOUNDS, prices[row])].set(row);
+        byDiscount[bucketOf(DISCOUNT_BOUNDS, discounts[row])].set(row);
+        if (quantities[row] > 0) {
+            inStock.set(row);
+        }
+    }
+
+    private void clearRow(int row) {
+        BitSet category = byCategory.get(categoryIds[row]);
+        if (category != null) {
+            category.clear(row);
+            if (category.isEmpty()) {
+                byCategory.remove(categoryIds[row]);
+            }
+        }
+        byPrice[bucketOf(PRICE_BOUNDS, prices[row])].clear(row);
+        byDiscount[bucketOf(DISCOUNT_BOUNDS, discounts[row])].clear(row);
+        inStock.clear(row);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+    }
+
+    private BitSet priceRange(Float min, Float max) {
+        BitSet result = new BitSet(size);
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            float price = prices[row];
+            if ((min == null || price >= min) && (max == null || price <= max)) {
+                result.set(row);
+            }
+        }
+        return result;
+    }
+
+    private List<FacetBucketDto> buckets(double[] bounds, BitSet[] sets, BitSet mask) {
+        List<FacetBucketDto> result = new ArrayList<>(bounds.length);
+        for (int i = 0; i < bounds.length; i++) {
+            Double to = i + 1 < bounds.length ? bounds[i + 1] : null;
+            result.add(new FacetBucketDto(bounds[i], to, countAnd(mask, sets[i])));
+        }
+        return result;
+    }
+
+    private static int bucketOf(double[] bounds, double value) {
+        int bucket = 0;
+        while (bucket + 1 < bounds.length && value >= bounds[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static BitSet intersect(BitSet first, BitSet... others) {
+        BitSet result = (BitSet) first.clone();
+        for (BitSet other : others) {
+            result.and(other);
+        }
+        return result;
+    }
+
+    private static int countAnd(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result.cardinality();
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,290 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.StockLedgerEntry;
+import com.storeapplication.repository.StockLedgerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind stock for flash-sale products. The in-memory counter decides every take,
+// a ledger row committed with the reservation makes it durable, and a scheduled flush
+// folds the ledger into products in batches, so the products row is no longer the queue.
+@Service
+public class HotStockService {
+
+    private static final int FLUSH_BATCH = 10_000;
+
+    // DELETE ... RETURNING hands back exactly the rows this transaction removed,
+    // so an entry committed while a flush is running is never dropped or applied twice
+    private static final String DRAIN_SQL = "DELETE FROM stock_ledger WHERE id IN "
+            + "(SELECT id FROM stock_ledger ORDER BY id LIMIT ?) RETURNING product_id, delta";
+    private static final String APPLY_SQL = "UPDATE products SET product_quantity = product_quantity + ? WHERE product_id = ?";
+    private static final String DRAIN_PRODUCT_SQL = "DELETE FROM stock_ledger WHERE product_id = ? RETURNING delta";
+    private static final String LOCK_SQL = "SELECT product_id FROM products WHERE product_id = ? FOR UPDATE";
+    // one statement, one snapshot: a concurrent flush can't move stock between the two terms
+    private static final String STOCK_SQL = "SELECT p.product_quantity + COALESCE((SELECT SUM(l.delta) FROM stock_ledger l "
+            + "WHERE l.product_id = p.product_id), 0) FROM products p WHERE p.product_id = ?";
+
+    private final StockLedgerRepository ledgerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCacheService productCacheService;
+    private final FacetService facetService;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogEventService catalogEventService;
+    private final String configuredProducts;
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    // takes hold the read side until their transaction completes; disable() takes the write side
+    private final Map<Long, ReentrantReadWriteLock> gates = new ConcurrentHashMap<>();
+
+    public HotStockService(StockLedgerRepository ledgerRepository, JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate, ProductCacheService productCacheService,
+                           FacetService facetService, CatalogVersionService catalogVersionService,
+                           CatalogEventService catalogEventService,
+                           @Value("${app.stock.hot-products:}") String configuredProducts) {
+        this.ledgerRepository = ledgerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCacheService = productCacheService;
+        this.facetService = facetService;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogEventService = catalogEventService;
+        this.configuredProducts = configuredProducts;
+    }
+
+    // whatever a crash left in the ledger is applied before any counter is loaded
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flush();
+        for (String id : configuredProducts.split(",")) {
+            if (!id.isBlank()) {
+                enable(Long.valueOf(id.trim()));
+            }
+        }
+    }
+
+    // The counter is seeded and published while the products row is locked. A reservation on the
+    // database path that was waiting for that lock finds the product hot once it gets it, and
+    // moves over to the counter instead of taking stock the counter already counts.
+    public String enable(Long productId) {
+        return transactionTemplate.execute(status -> {
+            try {
+                jdbcTemplate.queryForObject(LOCK_SQL, Long.class, productId);
+            } catch (EmptyResultDataAccessException e) {
+                return "product not found with id " + productId;
+            }
+            // a new statement after the lock, so every committed change to the row is seen
+            Long stock = jdbcTemplate.queryForObject(STOCK_SQL, Long.class, productId);
+            counters.putIfAbsent(productId, new AtomicLong(stock == null ? 0 : stock));
+            return null;
+        });
+    }
+
+    // New takes wait at the gate and the ones in flight finish first, so the ledger is complete when
+    // it is folded into the row. The counter goes away while takes still wait, and the row update
+    // keeps the database path off the row until it commits. The connection is taken before the gate:
+    // takes waiting there already hold theirs and could leave the pool empty.
+    public String disable(Long productId) {
+        if (!counters.containsKey(productId)) {
+            return "product is not in hot stock mode";
+        }
+        long[] drained = {0};
+        String error = transactionTemplate.execute(status -> {
+            ReentrantReadWriteLock gate = gate(productId);
+            gate.writeLock().lock();
+            try {
+                if (!counters.containsKey(productId)) {
+                    return "product is not in hot stock mode";
+                }
+                drained[0] = drain(productId);
+                counters.remove(productId);
+                return null;
+            } finally {
+                gate.writeLock().unlock();
+            }
+        });
+        applied(productId, drained[0]);
+        return error;
+    }
+
+    // Takes from the counter and records the ledger row in the caller's transaction; null when the
+    // product is not hot. The gate is held until that transaction completes, and a rolled back take
+    // is given back before it is released, so disable() never drops a counter a take still owes.
+    public Boolean take(Long productId, int quantity) {
+        boolean[] taken = {false};
+        if (!enter(productId, new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (taken[0] && status != STATUS_COMMITTED) {
+                    giveBack(productId, quantity);
+                }
+            }
+        })) {
+            return null;
+        }
+        if (!tryTake(productId, quantity)) {
+            return false;
+        }
+        taken[0] = true;
+        record(productId, -quantity);
+        return true;
+    }
+
+    // Records returned stock in the caller's transaction; false when the product is not hot.
+    // The counter gets it back only once the ledger row that backs it is committed.
+    public boolean putBack(Long productId, int quantity) {
+        if (!enter(productId, new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                giveBack(productId, quantity);
+            }
+        })) {
+            return false;
+        }
+        record(productId, quantity);
+        return true;
+    }
+
+    // takes the read side of the gate and hands it back after the transaction's own completion work
+    private boolean enter(Long productId, TransactionSynchronization completion) {
+        ReentrantReadWriteLock gate = gate(productId);
+        gate.readLock().lock();
+        try {
+            if (!counters.containsKey(productId)) {
+                gate.readLock().unlock();
+                return false;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    completion.afterCommit();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        completion.afterCompletion(status);
+                    } finally {
+                        gate.readLock().unlock();
+                    }
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            gate.readLock().unlock();
+            throw e;
+        }
+    }
+
+    private ReentrantReadWriteLock gate(Long productId) {
+        return gates.computeIfAbsent(productId, id -> new ReentrantReadWriteLock());
+    }
+
+    public boolean isHot(Long productId) {
+        return productId != null && counters.containsKey(productId);
+    }
+
+    public Map<Long, Long> snapshot() {
+        Map<Long, Long> result = new TreeMap<>();
+        counters.forEach((id, counter) -> result.put(id, counter.get()));
+        return result;
+    }
+
+    public Long available(Long productId) {
+        AtomicLong counter = counters.get(productId);
+        return counter == null ? null : counter.get();
+    }
+
+    // CAS loop instead of a LongAdder: a take must see the current value to refuse going below zero
+    public boolean tryTake(Long productId, int quantity) {
+        AtomicLong counter = counters.get(productId);
+        if (counter == null) {
+            return false;
+        }
+        long current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    public void giveBack(Long productId, int quantity) {
+        AtomicLong counter = counters.get(productId);
+        if (counter != null) {
+            counter.addAndGet(quantity);
+        }
+    }
+
+    // must run inside the transaction that makes the stock change visible
+    public void record(Long productId, int delta) {
+        StockLedgerEntry entry = new StockLedgerEntry();
+        entry.setProductId(productId);
+        entry.setDelta(delta);
+        ledgerRepository.save(entry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.hot-flush-interval-ms:1000}")
+    public void flush() {
+        int drained;
+        do {
+            Map<Long, Long> deltas = new HashMap<>();
+            drained = transactionTemplate.execute(status -> {
+                List<long[]> rows = jdbcTemplate.query(DRAIN_SQL,
+                        (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, FLUSH_BATCH);
+                for (long[] row : rows) {
+                    deltas.merge(row[0], row[1], Long::sum);
+                }
+                List<Object[]> updates = new ArrayList<>(deltas.size());
+                deltas.forEach((id, delta) -> {
+                    if (delta != 0) {
+                        updates.add(new Object[]{delta, id});
+                    }
+                });
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(APPLY_SQL, updates);
+                }
+                return rows.size();
+            });
+            deltas.forEach(this::applied);
+        } while (drained == FLUSH_BATCH);
+    }
+
+    // One product's ledger only, in the caller's transaction. A flush holding some of its rows is
+    // waited for, and whatever that flush deleted is skipped here, so every row is applied once.
+    private long drain(Long productId) {
+        long sum = 0;
+        for (Long row : jdbcTemplate.queryForList(DRAIN_PRODUCT_SQL, Long.class, productId)) {
+            sum += row;
+        }
+        if (sum != 0) {
+            jdbcTemplate.update(APPLY_SQL, sum, productId);
+        }
+        return sum;
+    }
+
+    private void applied(Long productId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        productCacheService.evictProductAndLists(productId);
+        facetService.adjustQuantity(productId, (int) delta);
+        catalogVersionService.productChanged(productId);
+        catalogEventService.stockChanged(productId);
+    }
+}
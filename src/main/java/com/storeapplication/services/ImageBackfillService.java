@@ -0,0 +1,49 @@
+package com.storeapplication.services;
+
+import com.storeapplication.repository.CategoryRepository;
+import com.storeapplication.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// A derivative job dropped by a full worker queue is never retried by the upload that asked for it,
+// and images stored before derivatives existed never had one. Both show up as rows whose imageSizes
+// is still null; every tick queues a batch of them and stops as soon as the workers are full again.
+@Service
+public class ImageBackfillService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final int batchSize;
+
+    public ImageBackfillService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                                ProductService productService, CategoryService categoryService,
+                                ImageDerivativeService imageDerivativeService,
+                                @Value("${app.images.backfill.batch-size:50}") int batchSize) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.backfill.interval-ms:60000}")
+    public void backfill() {
+        // rows stay null while their job runs; generate() skips those that are already queued
+        for (String image : productRepository.findImagesWithoutSizes(PageRequest.of(0, batchSize))) {
+            if (!imageDerivativeService.generate(image, sizes -> productService.recordImageSizes(image, sizes))) {
+                return;
+            }
+        }
+        for (String image : categoryRepository.findImagesWithoutSizes(PageRequest.of(0, batchSize))) {
+            if (!imageDerivativeService.generate(image, sizes -> categoryService.recordImageSizes(image, sizes))) {
+                return;
+            }
+        }
+    }
+}
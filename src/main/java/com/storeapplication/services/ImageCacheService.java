@@ -0,0 +1,128 @@
+package com.storeapplication.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.storeapplication.dto.response.CacheStatsResponseDto;
+import com.storeapplication.models.ImageSize;
+import com.storeapplication.utils.FileSender;
+import com.storeapplication.utils.FrequencySketch;
+import com.storeapplication.utils.ImageUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Keeps the most requested images in direct ByteBuffers, outside the Java heap, so hot images
+// cost neither a disk read nor heap garbage per request.
+// A file is only loaded once the sketch has seen it admitAfter times, so one-off requests never
+// allocate direct memory; Caffeine's W-TinyLFU then decides what stays within the byte budget.
+// Upload names never get new content (hash or timestamp names), so entries are only dropped
+// when the file is deleted or evicted.
+// Off unless app.images.cache.enabled is set: on Tomcat's default NIO connector every plain HTTP
+// request can use sendfile, which beats a hit that has to be copied through a heap chunk, so the
+// cache would never serve anything. It only pays off where sendfile is unavailable (TLS terminated
+// in Tomcat, useSendfile=false, another servlet container), and even then sendfile requests bypass it.
+@Service
+public class ImageCacheService {
+
+    private final boolean enabled;
+    private final Cache<Path, CachedImage> cache;
+    private final FrequencySketch sketch;
+    private final long maxFileBytes;
+    private final int admitAfter;
+
+    public ImageCacheService(@Value("${app.images.cache.enabled:false}") boolean enabled,
+                             @Value("${app.images.cache-bytes:67108864}") long maxBytes,
+                             @Value("${app.images.cache-max-file-bytes:2097152}") long maxFileBytes,
+                             @Value("${app.images.cache-admit-after:2}") int admitAfter) {
+        this.enabled = enabled;
+        this.maxFileBytes = maxFileBytes;
+        this.admitAfter = admitAfter;
+        // sized for roughly as many distinct images as a budget of thumbnails would hold
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, maxBytes / (16 * 1024))));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Path key, CachedImage image) -> image.data.capacity())
+                .recordStats()
+                .build();
+    }
+
+    public void send(Path file, String cacheControl, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException {
+        if (!enabled || FileSender.sendfileSupported(request)) {
+            FileSender.send(file, cacheControl, request, response);
+            return;
+        }
+        CachedImage image = lookup(file);
+        if (image == null) {
+            FileSender.send(file, cacheControl, request, response);
+            return;
+        }
+        FileSender.send(image.data, image.lastModified, image.contentType, cacheControl, request, response);
+    }
+
+    // the original and all of its derivatives
+    public void invalidate(Path original) {
+        cache.invalidate(original);
+        for (ImageSize size : ImageSize.values()) {
+            cache.invalidate(ImageUtil.variantPath(original, size));
+        }
+    }
+
+    public CacheStatsResponseDto stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsResponseDto("images", cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    private CachedImage lookup(Path file) {
+        int frequency = sketch.increment(file);
+        CachedImage image = cache.getIfPresent(file);
+        if (image != null || frequency < admitAfter) {
+            return image;
+        }
+        // concurrent misses for the same file load it once
+        return cache.get(file, this::load);
+    }
+
+    private CachedImage load(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile() || attributes.size() > maxFileBytes) {
+                return null;
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect((int) attributes.size());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    // read straight into the direct buffer, nothing passes through the heap
+                }
+            }
+            data.flip();
+            ByteBuffer readOnly = data.asReadOnlyBuffer();
+            return new CachedImage(readOnly, attributes.lastModifiedTime().toMillis(), FileSender.contentType(readOnly));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class CachedImage {
+        private final ByteBuffer data;
+        private final long lastModified;
+        private final String contentType;
+
+        private CachedImage(ByteBuffer data, long lastModified, String contentType) {
+            this.data = data;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+        }
+    }
+}
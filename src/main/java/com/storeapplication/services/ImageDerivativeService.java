@@ -0,0 +1,103 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.ImageSize;
+import com.storeapplication.utils.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Service
+public class ImageDerivativeService {
+
+    // largest first, so every size is scaled down from the previous one instead of the full original
+    private static final ImageSize[] ORDER = {ImageSize.ZOOM, ImageSize.CARD, ImageSize.THUMB};
+
+    private final float quality;
+    private final ImageWorkerService imageWorkerService;
+    // originals with a job on the workers, so the backfill and an upload of the same image don't both queue one
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivativeService(ImageWorkerService imageWorkerService,
+                                  @Value("${app.images.jpeg-quality:0.85}") float quality) {
+        this.imageWorkerService = imageWorkerService;
+        this.quality = quality;
+    }
+
+    // onReady gets the comma separated keys of the sizes that were written, empty when none could be,
+    // so a broken original is recorded once instead of being retried forever. Returns false when the
+    // image workers are saturated and the job was dropped; the row keeps its null sizes until
+    // ImageBackfillService queues it again, and the original is served for every size meanwhile.
+    public boolean generate(String originalPath, Consumer<String> onReady) {
+        if (originalPath == null || originalPath.isBlank() || !queued.add(originalPath)) {
+            return true;
+        }
+        boolean accepted = imageWorkerService.runLater(() -> {
+            try {
+                onReady.accept(writeDerivatives(Path.of(originalPath)));
+            } finally {
+                queued.remove(originalPath);
+            }
+        });
+        if (!accepted) {
+            queued.remove(originalPath);
+        }
+        return accepted;
+    }
+
+    private String writeDerivatives(Path original) {
+        // a deduplicated upload already has its derivatives from the first time it was stored
+        StringJoiner existing = new StringJoiner(",");
+        for (ImageSize size : ORDER) {
+            if (!Files.exists(ImageUtil.variantPath(original, size))) {
+                existing = null;
+                break;
+            }
+            existing.add(size.key());
+        }
+        if (existing != null) {
+            return existing.toString();
+        }
+
+        BufferedImage image;
+        try {
+            image = ImageIO.read(original.toFile());
+        } catch (IOException e) {
+            return "";
+        }
+        if (image == null) {
+            return "";
+        }
+        StringJoiner ready = new StringJoiner(",");
+        for (ImageSize size : ORDER) {
+            image = ImageUtil.downscale(image, size.getMaxEdge());
+            try {
+                write(image, ImageUtil.variantPath(original, size));
+                ready.add(size.key());
+            } catch (IOException e) {
+                // a missing derivative falls back to the original when served
+            }
+        }
+        return ready.toString();
+    }
+
+    // written beside the target and moved into place, so a request never serves half a variant
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ImageUtil.writeJpeg(image, temp.toFile(), quality);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
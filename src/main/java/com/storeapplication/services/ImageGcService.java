@@ -0,0 +1,224 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.ImageGcStatsDto;
+import com.storeapplication.models.ImageSize;
+import com.storeapplication.repository.CategoryRepository;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.utils.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Finds files in upload/ that no product or category points at any more: legacy flat uploads, content
+// files whose reference count leaked, variants of originals that are gone and temp files of writes that
+// never finished. A pass marks the referenced names with two queries, then sweeps the tree a few hundred
+// files per tick so the disk and the scheduler thread are never busy for long. Anything modified within
+// the grace period before the pass started is left alone, and every deletion is confirmed against the
+// database first. upload/resized and upload/.incoming have their own cleanup and are not entered.
+@Service
+public class ImageGcService {
+
+    // the content store's shard directories, nothing else below the root is walked
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    private final ImageStoreService imageStoreService;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final boolean enabled;
+    private final int filesPerTick;
+    private final long passIntervalMillis;
+    private final long graceMillis;
+
+    // pass state, only touched from the scheduler thread
+    private final Deque<Path> pendingDirs = new ArrayDeque<>();
+    private final Deque<Path> pendingFiles = new ArrayDeque<>();
+    private Set<String> referenced;
+    private long cutoff;
+    private volatile long passStartedAt;
+    private volatile long lastPassEndedAt;
+
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder reclaimedBytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lastPassMillis;
+    private volatile int referencedImages;
+
+    public ImageGcService(ImageStoreService imageStoreService, ProductRepository productRepository,
+                          CategoryRepository categoryRepository,
+                          @Value("${app.images.gc.enabled:true}") boolean enabled,
+                          @Value("${app.images.gc.files-per-tick:200}") int filesPerTick,
+                          @Value("${app.images.gc.pass-interval-minutes:360}") long passIntervalMinutes,
+                          @Value("${app.images.gc.grace-minutes:1440}") long graceMinutes) {
+        this.imageStoreService = imageStoreService;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.enabled = enabled;
+        this.filesPerTick = Math.max(1, filesPerTick);
+        this.passIntervalMillis = TimeUnit.MINUTES.toMillis(passIntervalMinutes);
+        this.graceMillis = TimeUnit.MINUTES.toMillis(graceMinutes);
+    }
+
+    // Each directory listed and each file looked at costs one unit of the per-tick budget
+    @Scheduled(fixedDelayString = "${app.images.gc.tick-ms:5000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        if (referenced == null) {
+            if (System.currentTimeMillis() - lastPassEndedAt < passIntervalMillis) {
+                return;
+            }
+            startPass();
+        }
+        for (int budget = filesPerTick; budget > 0; budget--) {
+            Path file = pendingFiles.poll();
+            if (file != null) {
+                sweep(file);
+                continue;
+            }
+            Path dir = pendingDirs.poll();
+            if (dir == null) {
+                finishPass();
+                return;
+            }
+            list(dir);
+        }
+    }
+
+    public ImageGcStatsDto stats() {
+        return new ImageGcStatsDto(passStartedAt > lastPassEndedAt, passes.sum(), scanned.sum(), deleted.sum(),
+                reclaimedBytes.sum(), failures.sum(), referencedImages, lastPassMillis,
+                lastPassEndedAt == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(lastPassEndedAt), ZoneId.systemDefault()));
+    }
+
+    private void startPass() {
+        Set<String> names = new HashSet<>();
+        for (String image : productRepository.findAllImages()) {
+            names.add(fileName(image));
+        }
+        for (String image : categoryRepository.findAllImages()) {
+            names.add(fileName(image));
+        }
+        referenced = names;
+        referencedImages = names.size();
+        passStartedAt = System.currentTimeMillis();
+        // files created after this are too new to judge, whatever the snapshot says about them
+        cutoff = passStartedAt - graceMillis;
+        pendingDirs.clear();
+        pendingFiles.clear();
+        if (Files.isDirectory(ImageUtil.uploadRoot())) {
+            pendingDirs.add(ImageUtil.uploadRoot());
+        }
+    }
+
+    private void finishPass() {
+        referenced = null;
+        lastPassEndedAt = System.currentTimeMillis();
+        lastPassMillis = lastPassEndedAt - passStartedAt;
+        passes.increment();
+    }
+
+    private void list(Path dir) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    if (SHARD.matcher(entry.getFileName().toString()).matches()) {
+                        pendingDirs.add(entry);
+                    }
+                } else {
+                    pendingFiles.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    private void sweep(Path file) {
+        scanned.increment();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // removed since the directory was listed
+            return;
+        }
+        String name = file.getFileName().toString();
+        if (!attributes.isRegularFile() || attributes.lastModifiedTime().toMillis() > cutoff || referenced.contains(name)) {
+            return;
+        }
+        if (name.endsWith(".tmp")) {
+            remove(file, attributes.size());
+            return;
+        }
+        Path original = originalOf(file);
+        if (original != null) {
+            if (!Files.exists(original)) {
+                remove(file, attributes.size());
+            }
+            return;
+        }
+        long bytes = attributes.size() + variantBytes(file);
+        if (imageStoreService.collect(file, LocalDateTime.ofInstant(Instant.ofEpochMilli(cutoff), ZoneId.systemDefault()))) {
+            deleted.increment();
+            reclaimedBytes.add(bytes);
+        }
+    }
+
+    private void remove(Path file, long size) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                deleted.increment();
+                reclaimedBytes.add(size);
+            }
+        } catch (IOException e) {
+            failures.increment();
+        }
+    }
+
+    // the original a derivative was scaled from, null when the file is not a derivative
+    private static Path originalOf(Path file) {
+        String name = file.getFileName().toString();
+        for (ImageSize size : ImageSize.values()) {
+            String suffix = "." + size.key() + ".jpg";
+            if (name.endsWith(suffix) && name.length() > suffix.length()) {
+                return file.resolveSibling(name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        return null;
+    }
+
+    private static long variantBytes(Path original) {
+        long bytes = 0;
+        for (ImageSize size : ImageSize.values()) {
+            try {
+                bytes += Files.size(ImageUtil.variantPath(original, size));
+            } catch (IOException e) {
+                // not generated
+            }
+        }
+        return bytes;
+    }
+
+    // stored values are absolute paths written on whatever OS the app ran on
+    private static String fileName(String image) {
+        int slash = Math.max(image.lastIndexOf('/'), image.lastIndexOf('\\'));
+        return image.substring(slash + 1);
+    }
+}
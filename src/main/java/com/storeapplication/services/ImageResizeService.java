@@ -0,0 +1,264 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.ImageSize;
+import com.storeapplication.utils.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+// Arbitrary ?w=&h=&fit= renditions, limited to whitelisted dimensions so nobody can fill the disk
+// with one file per pixel size. Each rendition is made once: concurrent requests for the same one
+// wait on the first, and the result is kept under upload/resized in an LRU bounded by total bytes.
+@Service
+public class ImageResizeService {
+
+    public static final String CONTAIN = "contain";
+    public static final String COVER = "cover";
+
+    // derivatives smallest first, the cheapest source that is still big enough wins
+    private static final ImageSize[] SOURCES = {ImageSize.THUMB, ImageSize.CARD, ImageSize.ZOOM};
+
+    private final ImageWorkerService imageWorkerService;
+    private final ImageCacheService imageCacheService;
+    private final Set<Integer> allowedSizes = new HashSet<>();
+    private final long maxBytes;
+    private final float quality;
+
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // rendition -> bytes on disk, least recently served first
+    private final LinkedHashMap<Path, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public ImageResizeService(ImageWorkerService imageWorkerService, ImageCacheService imageCacheService,
+                              @Value("${app.images.resize.sizes:64,96,128,160,240,320,480,640,720,960,1080,1200}") String sizes,
+                              @Value("${app.images.resize.cache-bytes:536870912}") long maxBytes,
+                              @Value("${app.images.jpeg-quality:0.85}") float quality) {
+        this.imageWorkerService = imageWorkerService;
+        this.imageCacheService = imageCacheService;
+        for (String size : sizes.split(",")) {
+            if (!size.isBlank()) {
+                allowedSizes.add(Integer.valueOf(size.trim()));
+            }
+        }
+        this.maxBytes = maxBytes;
+        this.quality = quality;
+    }
+
+    // renditions left from the previous run, oldest first, so the LRU order survives a restart roughly
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.forEach(path -> {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attrs.isRegularFile()) {
+                        files.add(path);
+                        attributes.put(path, attrs);
+                    }
+                } catch (IOException e) {
+                    // vanished while walking
+                }
+            });
+        } catch (IOException e) {
+            return;
+        }
+        files.sort(Comparator.comparing(path -> attributes.get(path).lastModifiedTime()));
+        synchronized (index) {
+            for (Path file : files) {
+                if (index.put(file, attributes.get(file).size()) == null) {
+                    totalBytes += attributes.get(file).size();
+                }
+            }
+            evictOverBudget();
+        }
+    }
+
+    // The rendition's path, made now if needed; null when the original cannot be decoded.
+    public Path resize(Path original, Integer width, Integer height, String fit) throws IOException {
+        String mode = fit == null || fit.isBlank() ? CONTAIN : fit.trim().toLowerCase(Locale.ROOT);
+        if (!CONTAIN.equals(mode) && !COVER.equals(mode)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fit must be contain or cover");
+        }
+        if ((width != null && !allowedSizes.contains(width)) || (height != null && !allowedSizes.contains(height))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "w and h must be one of " + new TreeSet<>(allowedSizes));
+        }
+        if ((width == null && height == null) || !Files.isRegularFile(original)) {
+            return original;
+        }
+
+        Path target = renditionPath(original, width, height, mode);
+        synchronized (index) {
+            if (index.get(target) != null) {
+                return target;
+            }
+        }
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> leader = inFlight.putIfAbsent(target, mine);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            Path result = imageWorkerService.run(() -> render(original, target, width, height, mode), () -> { });
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(target, mine);
+        }
+    }
+
+    // drops every rendition of an original that is being deleted
+    public void evictOriginal(Path original) {
+        String prefix = original.getFileName() + ".";
+        List<Path> doomed = new ArrayList<>();
+        synchronized (index) {
+            Iterator<Map.Entry<Path, Long>> entries = index.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Path, Long> entry = entries.next();
+                if (entry.getKey().getFileName().toString().startsWith(prefix)) {
+                    totalBytes -= entry.getValue();
+                    doomed.add(entry.getKey());
+                    entries.remove();
+                }
+            }
+        }
+        doomed.forEach(this::delete);
+    }
+
+    private Path render(Path original, Path target, Integer width, Integer height, String mode) throws IOException {
+        // another request may have finished it between the index check and this task
+        if (Files.isRegularFile(target)) {
+            remember(target, Files.size(target));
+            return target;
+        }
+
+        Dimension size = ImageUtil.readDimensions(original);
+        double scaleX = width == null ? Double.NaN : (double) width / size.width;
+        double scaleY = height == null ? Double.NaN : (double) height / size.height;
+        double scale;
+        if (Double.isNaN(scaleX) || Double.isNaN(scaleY)) {
+            scale = Double.isNaN(scaleX) ? scaleY : scaleX;
+        } else {
+            scale = COVER.equals(mode) ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+        }
+        // never upscale, a bigger blurry copy is no better than the original
+        scale = Math.min(1.0, scale);
+        int scaledWidth = Math.max(1, (int) Math.round(size.width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(size.height * scale));
+
+        BufferedImage image = ImageIO.read(pickSource(original, Math.max(scaledWidth, scaledHeight)).toFile());
+        if (image == null) {
+            return null;
+        }
+        image = ImageUtil.scale(image, scaledWidth, scaledHeight);
+        if (COVER.equals(mode) && width != null && height != null) {
+            int cropWidth = Math.min(width, scaledWidth);
+            int cropHeight = Math.min(height, scaledHeight);
+            image = image.getSubimage((scaledWidth - cropWidth) / 2, (scaledHeight - cropHeight) / 2, cropWidth, cropHeight);
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ImageUtil.writeJpeg(image, temp.toFile(), quality);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        remember(target, Files.size(target));
+        return target;
+    }
+
+    private Path pickSource(Path original, int longEdge) {
+        for (ImageSize size : SOURCES) {
+            Path variant = ImageUtil.variantPath(original, size);
+            if (size.getMaxEdge() >= longEdge && Files.exists(variant)) {
+                return variant;
+            }
+        }
+        return original;
+    }
+
+    private void remember(Path target, long bytes) {
+        synchronized (index) {
+            Long previous = index.put(target, bytes);
+            totalBytes += bytes - (previous == null ? 0 : previous);
+            evictOverBudget();
+        }
+    }
+
+    // caller holds the index lock
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Path, Long>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Path, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            delete(entry.getKey());
+        }
+    }
+
+    private void delete(Path rendition) {
+        imageCacheService.invalidate(rendition);
+        try {
+            Files.deleteIfExists(rendition);
+        } catch (IOException e) {
+            // picked up again by the next startup scan
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a resize", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // upload/resized/<2 hex>/<original name>.<w>x<h>.<fit>.jpg, 0 for a side that was not given
+    private static Path renditionPath(Path original, Integer width, Integer height, String mode) {
+        String name = original.getFileName().toString();
+        String shard = String.format("%02x", name.hashCode() & 0xFF);
+        return root().resolve(shard).resolve(name + "." + (width == null ? 0 : width) + "x"
+                + (height == null ? 0 : height) + "." + mode + ".jpg");
+    }
+
+    private static Path root() {
+        return ImageUtil.uploadRoot().resolve("resized");
+    }
+}
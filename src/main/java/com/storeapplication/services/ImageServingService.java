@@ -0,0 +1,45 @@
+package com.storeapplication.services;
+
+import com.storeapplication.utils.FileSender;
+import com.storeapplication.utils.ImageUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// The image endpoints of products and categories, which read from the same upload directory
+@Service
+public class ImageServingService {
+
+    private final ImageCacheService imageCacheService;
+    private final ImageResizeService imageResizeService;
+
+    public ImageServingService(ImageCacheService imageCacheService, ImageResizeService imageResizeService) {
+        this.imageCacheService = imageCacheService;
+        this.imageResizeService = imageResizeService;
+    }
+
+    // size picks a derivative, w/h render any other size; both fall back to the original
+    public void send(String fileName, String size, Integer width, Integer height, String fit,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path original = ImageUtil.uploadFile(fileName);
+        if (original == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path;
+        if (width != null || height != null) {
+            path = imageResizeService.resize(original, width, height, fit);
+        } else {
+            path = ImageUtil.pickVariant(original, size);
+        }
+        // upload names are unique, but a derivative that isn't ready yet must not pin the original in caches
+        boolean fallback = path == null || ((size != null || width != null || height != null) && path.equals(original));
+        if (path == null) {
+            path = original;
+        }
+        imageCacheService.send(path, fallback ? FileSender.REVALIDATE : FileSender.IMMUTABLE, request, response);
+    }
+}
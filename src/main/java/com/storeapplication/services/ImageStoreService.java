@@ -0,0 +1,173 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.ImageSize;
+import com.storeapplication.models.StoredImage;
+import com.storeapplication.repository.CategoryRepository;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.repository.StoredImageRepository;
+import com.storeapplication.utils.ImageUtil;
+import com.storeapplication.utils.StripedLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Uploads are stored once per distinct content under upload/<2 hex>/<2 hex>/<sha256>.jpg.
+// Every product or category pointing at a file holds one reference; the last release deletes it.
+@Service
+public class ImageStoreService {
+
+    private final StoredImageRepository storedImageRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ImageWorkerService imageWorkerService;
+    private final ImageCacheService imageCacheService;
+    private final ImageResizeService imageResizeService;
+    private final ImageUploadService imageUploadService;
+    private final float quality;
+    private final long maxPixels;
+    // the existence check, the write and the reference change for one hash never interleave
+    private final StripedLock locks;
+
+    public ImageStoreService(StoredImageRepository storedImageRepository, ProductRepository productRepository,
+                             CategoryRepository categoryRepository, ImageWorkerService imageWorkerService,
+                             ImageCacheService imageCacheService, ImageResizeService imageResizeService,
+                             ImageUploadService imageUploadService,
+                             @Value("${app.images.upload-quality:0.92}") float quality,
+                             @Value("${app.images.max-pixels:50000000}") long maxPixels,
+                             @Value("${app.images.lock-stripes:64}") int stripes) {
+        this.storedImageRepository = storedImageRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.imageWorkerService = imageWorkerService;
+        this.imageCacheService = imageCacheService;
+        this.imageResizeService = imageResizeService;
+        this.imageUploadService = imageUploadService;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+        this.locks = new StripedLock(stripes);
+    }
+
+    // Returns the stored path with one reference already taken for the caller,
+    // who either saves it on a row or gives it back with release().
+    // Only spooling the request body happens on the calling thread; decoding and encoding run on an image worker.
+    public String store(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        return store(ImageUtil.readUpload(file));
+    }
+
+    // same as store(MultipartFile) for an upload that was completed through ImageUploadService
+    public String storeUpload(String uploadId) throws IOException {
+        if (uploadId == null || uploadId.isBlank()) {
+            return null;
+        }
+        return store(imageUploadService.take(uploadId));
+    }
+
+    private String store(ImageUtil.Upload upload) throws IOException {
+        return imageWorkerService.run(() -> {
+            try (upload) {
+                String hash = upload.sha256();
+                Path target = ImageUtil.contentPath(hash);
+                ReentrantLock lock = locks.get(hash);
+                lock.lock();
+                try {
+                    if (!Files.exists(target)) {
+                        write(upload, target);
+                    }
+                    storedImageRepository.retain(hash, Files.size(target), LocalDateTime.now());
+                } finally {
+                    lock.unlock();
+                }
+                return target.toString();
+            }
+        }, upload::close);
+    }
+
+    public void release(String image) {
+        String hash = ImageUtil.contentHash(image);
+        if (hash == null) {
+            return;
+        }
+        ReentrantLock lock = locks.get(hash);
+        lock.lock();
+        try {
+            if (storedImageRepository.release(hash) > 0 && storedImageRepository.deleteUnreferenced(hash) > 0) {
+                delete(ImageUtil.contentPath(hash));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes an original, with its variants, when no product or category names it. A content file also
+    // needs its last reference to be older than retainedBefore, since an upload holds one before its row is
+    // saved; a count no row backs up after that is a leak and is dropped with the file.
+    public boolean collect(Path original, LocalDateTime retainedBefore) {
+        String fileName = original.getFileName().toString();
+        String hash = ImageUtil.contentHash(fileName);
+        ReentrantLock lock = locks.get(hash != null ? hash : fileName);
+        lock.lock();
+        try {
+            if (productRepository.countByImageFileName(fileName) > 0 || categoryRepository.countByImageFileName(fileName) > 0) {
+                return false;
+            }
+            if (hash != null) {
+                StoredImage stored = storedImageRepository.findById(hash).orElse(null);
+                if (stored != null) {
+                    LocalDateTime retained = stored.getRetainedAt() != null ? stored.getRetainedAt() : stored.getCreatedAt();
+                    if (retained == null || retained.isAfter(retainedBefore)) {
+                        return false;
+                    }
+                    storedImageRepository.delete(stored);
+                }
+            }
+            delete(original);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // written beside the target and moved into place, so a reader never sees half a file
+    private void write(ImageUtil.Upload upload, Path target) throws IOException {
+        // the decoded raster, not the file, is what costs memory; refuse it before allocating it
+        Dimension dimension = ImageUtil.readDimensions(upload.path());
+        if ((long) dimension.width * dimension.height > maxPixels) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "images are limited to " + maxPixels + " pixels");
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            upload.writeOriented(temp.toFile(), quality);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void delete(Path original) {
+        imageCacheService.invalidate(original);
+        imageResizeService.evictOriginal(original);
+        try {
+            for (ImageSize size : ImageSize.values()) {
+                Files.deleteIfExists(ImageUtil.variantPath(original, size));
+            }
+            Files.deleteIfExists(original);
+        } catch (IOException e) {
+            // a leftover file is only wasted space; the next upload of the same bytes reuses it
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.UploadStatusDto;
+import com.storeapplication.utils.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// Resumable uploads for originals too large for one multipart request. The client declares the size,
+// PUTs the bytes in chunks at the offset the server reports and, after a dropped connection, asks for
+// the offset again and carries on from there. Chunks are appended to upload/.incoming/<id>-<size>.part
+// through a small buffer and hashed as they arrive, so memory per upload stays constant. A finished
+// upload is handed to a product or category by its id, which stores it like a multipart image.
+@Service
+public class ImageUploadService {
+
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{32}");
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final long maxChunkBytes;
+    private final long ttlMillis;
+
+    public ImageUploadService(@Value("${app.images.upload.max-bytes:52428800}") long maxBytes,
+                              @Value("${app.images.upload.max-chunk-bytes:8388608}") long maxChunkBytes,
+                              @Value("${app.images.upload.ttl-minutes:60}") long ttlMinutes) {
+        this.maxBytes = maxBytes;
+        this.maxChunkBytes = maxChunkBytes;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    public UploadStatusDto create(long size) throws IOException {
+        if (size <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        if (size > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "uploads are limited to " + maxBytes + " bytes");
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Files.createDirectories(ImageUtil.incomingDir());
+        Path file = Files.createFile(ImageUtil.incomingDir().resolve(id + "-" + size + ".part"));
+        Session session = new Session(id, file, size, 0, ImageUtil.sha256Digest());
+        sessions.put(id, session);
+        return session.status();
+    }
+
+    public UploadStatusDto status(String id) {
+        return session(id).status();
+    }
+
+    // Appends the body at offset, which has to be where the upload currently ends. The chunk is read
+    // up to the chunk limit or the declared size; whatever arrived before a failure is kept and shows
+    // up in the reported offset.
+    public UploadStatusDto append(String id, long offset, InputStream body) throws IOException {
+        Session session = session(id);
+        // a retry must not interleave with a chunk that is still being read
+        if (!session.lock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "another chunk of this upload is in progress");
+        }
+        try {
+            if (offset != session.offset) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "upload continues at offset " + session.offset);
+            }
+            long limit = Math.min(maxChunkBytes, session.size - session.offset);
+            boolean tooLong;
+            try (FileChannel out = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                out.position(session.offset);
+                try {
+                    ImageUtil.append(Channels.newChannel(body), out, session.digest, limit);
+                    tooLong = body.read() >= 0;
+                } catch (IOException | RuntimeException e) {
+                    // the digest may have seen bytes that never made it to the file
+                    session.digest = null;
+                    throw e;
+                } finally {
+                    session.offset = out.size();
+                    session.touched = System.currentTimeMillis();
+                }
+            }
+            if (tooLong) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "chunk exceeds " + limit + " bytes; upload continues at offset " + session.offset);
+            }
+            return session.status();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // Hands a complete upload over as a spooled file; closing it deletes the file
+    public ImageUtil.Upload take(String id) throws IOException {
+        Session session = session(id);
+        if (!session.lock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "a chunk of this upload is still in progress");
+        }
+        try {
+            if (session.offset != session.size) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "upload is incomplete: " + session.offset + " of " + session.size + " bytes");
+            }
+            // a caller that found the session before an earlier take dropped it
+            if (sessions.get(id) != session) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "upload not found");
+            }
+            // renamed before the session is dropped, so session() can't pick the .part file up again
+            Path taken = session.file.resolveSibling(id + "-" + session.size + ".taken");
+            Files.move(session.file, taken, StandardCopyOption.ATOMIC_MOVE);
+            // the sweep judges the file by its age and must leave it alone while it is being stored
+            Files.setLastModifiedTime(taken, FileTime.fromMillis(System.currentTimeMillis()));
+            sessions.remove(id, session);
+            // resumed after a restart or a failed chunk, the hash is taken from the file instead
+            String hash = session.digest == null ? null : HexFormat.of().formatHex(session.digest.digest());
+            return ImageUtil.spooledUpload(taken, hash);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public void abort(String id) throws IOException {
+        Session session = session(id);
+        session.lock.lock();
+        try {
+            sessions.remove(id, session);
+            Files.deleteIfExists(session.file);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    // Partial uploads nobody has touched within the TTL, and spool or taken files a crash left behind
+    @Scheduled(fixedDelayString = "${app.images.upload.sweep-interval-ms:600000}")
+    public void removeExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        for (Session session : sessions.values()) {
+            if (session.touched < cutoff && session.lock.tryLock()) {
+                try {
+                    if (sessions.remove(session.id, session)) {
+                        Files.deleteIfExists(session.file);
+                    }
+                } catch (IOException e) {
+                    // retried on the next sweep through the directory listing below
+                } finally {
+                    session.lock.unlock();
+                }
+            }
+        }
+        Path dir = ImageUtil.incomingDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff && !sessions.containsKey(sessionId(file))) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    // gone already, or retried next time
+                }
+            }
+        } catch (IOException e) {
+            // retried next time
+        }
+    }
+
+    // In memory, or picked up again from its file after a restart with the offset at the file's end
+    private Session session(String id) {
+        if (id == null || !ID.matcher(id).matches()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "upload not found");
+        }
+        Session session = sessions.get(id);
+        if (session != null) {
+            return session;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(ImageUtil.incomingDir(), id + "-*.part")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = Long.parseLong(name.substring(id.length() + 1, name.length() - 5));
+                return sessions.computeIfAbsent(id, key -> {
+                    try {
+                        return new Session(id, file, size, Files.size(file), null);
+                    } catch (IOException e) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "upload not found");
+                    }
+                });
+            }
+        } catch (IOException | NumberFormatException e) {
+            // treated as unknown
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "upload not found");
+    }
+
+    private static String sessionId(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.indexOf('-');
+        return dash > 0 ? name.substring(0, dash) : name;
+    }
+
+    private static class Session {
+        private final String id;
+        private final Path file;
+        private final long size;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long offset;
+        private volatile long touched = System.currentTimeMillis();
+        // null once it can no longer be trusted to match the file
+        private MessageDigest digest;
+
+        private Session(String id, Path file, long size, long offset, MessageDigest digest) {
+            this.id = id;
+            this.file = file;
+            this.size = size;
+            this.offset = offset;
+            this.digest = digest;
+        }
+
+        private UploadStatusDto status() {
+            return new UploadStatusDto(id, offset, size, offset == size);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.ImageWorkerStatsDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// All image decoding, rotation and scaling runs here instead of on request threads. A few workers
+// and a bounded queue cap the CPU and memory images can take from the storefront; when the queue
+// is full, uploads are turned away with 503 instead of waiting in line.
+@Service
+public class ImageWorkerService {
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final ThreadPoolExecutor executor;
+    private final int workers;
+    private final int queueSize;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0);
+
+    public ImageWorkerService(@Value("${app.images.workers:2}") int workers,
+                              @Value("${app.images.queue-size:100}") int queueSize) {
+        this.workers = workers;
+        this.queueSize = queueSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "image-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Runs the task on a worker and waits for it; the request thread only sleeps meanwhile.
+    // onRejected runs when the task never got in, so the caller can free what it handed over.
+    public <T> T run(Callable<T> task, Runnable onRejected) throws IOException {
+        Future<T> future;
+        try {
+            future = executor.submit(timed(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            onRejected.run();
+            throw new BusyException(retryAfterSeconds());
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for image processing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // fire and forget; false when the queue is full and the task was dropped
+    public boolean runLater(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    timed(() -> {
+                        task.run();
+                        return null;
+                    }).call();
+                } catch (Exception e) {
+                    // already counted as failed
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    // how long the queue in front of a new task should take to drain, from the average task time
+    public long retryAfterSeconds() {
+        long count = completed.sum() + failed.sum();
+        double averageNanos = count == 0 ? TimeUnit.SECONDS.toNanos(1) : (double) runNanos.sum() / count;
+        double drainNanos = averageNanos * (executor.getQueue().size() + 1) / workers;
+        long seconds = (long) Math.ceil(drainNanos / TimeUnit.SECONDS.toNanos(1));
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    public ImageWorkerStatsDto stats() {
+        long done = completed.sum();
+        long count = done + failed.sum();
+        return new ImageWorkerStatsDto(workers, executor.getActiveCount(), executor.getQueue().size(), queueSize,
+                done, failed.sum(), rejected.sum(),
+                count == 0 ? 0.0 : waitNanos.sum() / 1e6 / count,
+                count == 0 ? 0.0 : runNanos.sum() / 1e6 / count,
+                maxRunNanos.get() / 1e6);
+    }
+
+    private <T> Callable<T> timed(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            waitNanos.add(startedAt - queuedAt);
+            boolean ok = false;
+            try {
+                T result = task.call();
+                ok = true;
+                return result;
+            } finally {
+                long took = System.nanoTime() - startedAt;
+                runNanos.add(took);
+                maxRunNanos.accumulate(took);
+                (ok ? completed : failed).increment();
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // 503 with Retry-After; ResponseStatusExceptionResolver copies getHeaders() onto the response
+    public static class BusyException extends ResponseStatusException {
+
+        private final long retryAfterSeconds;
+
+        public BusyException(long retryAfterSeconds) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "Image processing is busy, try again shortly");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            return headers;
+        }
+    }
+}
@@ -2,12 +2,14 @@ package com.storeapplication.services;
 
 import com.storeapplication.models.Order;
 import com.storeapplication.models.OrderProduct;
+import com.storeapplication.models.Product;
 import com.storeapplication.repository.OrderProductRepository;
 import com.storeapplication.repository.OrderRepository;
+import com.storeapplication.utils.Money;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
-import java.math.BigDecimal;
 import java.util.List;
 
 @Service
@@ -16,10 +18,15 @@ public class OrderProductService {
 
 	private OrderProductRepository orderProductRepository;
 	private OrderRepository orderRepository;
+	private StockReservationService stockReservationService;
+	private ProductService productService;
 
-	public OrderProductService(OrderProductRepository orderProductRepository, OrderRepository orderRepository) {
+	public OrderProductService(OrderProductRepository orderProductRepository, OrderRepository orderRepository,
+							   StockReservationService stockReservationService, ProductService productService) {
 		this.orderProductRepository = orderProductRepository;
 		this.orderRepository = orderRepository;
+		this.stockReservationService = stockReservationService;
+		this.productService = productService;
 	}
 
 	@Transactional
@@ -43,17 +50,34 @@ public class OrderProductService {
 		if (order == null) {
 			return "Order not found";
 		}
+		if (orderProduct.getProduct() == null || orderProduct.getProduct().getProductId() == null) {
+			return "Product reference is required";
+		}
 
 		orderProduct.setOrder(order);
+		// clients may leave the price out; the line then takes the product's current discounted price
+		if (orderProduct.getPriceAtOrderTime() == null) {
+			Product product = productService.getProductById(orderProduct.getProduct().getProductId());
+			if (product != null) {
+				orderProduct.setPriceAtOrderTime(product.getEffectivePrice());
+			}
+		}
 		orderProductRepository.save(orderProduct);
 
-		BigDecimal currentTotal = order.getTotalAmount() == null ? BigDecimal.ZERO : order.getTotalAmount();
-		BigDecimal price = orderProduct.getPriceAtOrderTime() == null ? BigDecimal.ZERO : orderProduct.getPriceAtOrderTime();
-		BigDecimal lineTotal = price.multiply(BigDecimal.valueOf(orderProduct.getQuantity()));
-		order.setTotalAmount(currentTotal.add(lineTotal));
+		// the stock is held for this line until the order is paid, cancelled or the hold expires
+		String stockError = stockReservationService.reserve(orderProduct.getProduct().getProductId(),
+				orderProduct.getQuantity(), order.getId(), orderProduct.getId());
+		if (stockError != null) {
+			// the line was saved only to give the hold its id
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+			return stockError;
+		}
+
+		long lineTotal = Money.times(Money.of(orderProduct.getPriceAtOrderTime()), orderProduct.getQuantity());
+		order.setTotalAmount(Money.toBigDecimal(Money.add(Money.of(order.getTotalAmount()), lineTotal)));
 		orderRepository.save(order);
 
-		return "Successfully added order product";
+		return null;
 	}
 
 	@Transactional
@@ -62,15 +86,14 @@ public class OrderProductService {
 		if  (orderProduct != null) {
 			Order order = orderProduct.getOrder();
 			if (order != null) {
-				BigDecimal currentTotal = order.getTotalAmount() == null ? BigDecimal.ZERO : order.getTotalAmount();
-				BigDecimal price = orderProduct.getPriceAtOrderTime() == null ? BigDecimal.ZERO : orderProduct.getPriceAtOrderTime();
-				BigDecimal lineTotal = price.multiply(BigDecimal.valueOf(orderProduct.getQuantity()));
-				BigDecimal updated = currentTotal.subtract(lineTotal);
-				if (updated.compareTo(BigDecimal.ZERO) < 0) {
-					updated = BigDecimal.ZERO;
-				}
-				order.setTotalAmount(updated);
+				long lineTotal = Money.times(Money.of(orderProduct.getPriceAtOrderTime()), orderProduct.getQuantity());
+				long updated = Math.max(0, Money.subtract(Money.of(order.getTotalAmount()), lineTotal));
+				order.setTotalAmount(Money.toBigDecimal(updated));
 				orderRepository.save(order);
+				if (orderProduct.getProduct() != null) {
+					stockReservationService.releaseLine(order.getId(), orderProduct.getId(),
+							orderProduct.getProduct().getProductId(), orderProduct.getQuantity());
+				}
 			}
 			orderProductRepository.delete(orderProduct);
 			return null;
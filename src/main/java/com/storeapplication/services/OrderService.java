@@ -14,19 +14,35 @@ public class OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
-    public OrderService(OrderRepository orderRepository) {
+    private final StockReservationService stockReservationService;
+
+    public OrderService(OrderRepository orderRepository, StockReservationService stockReservationService) {
         this.orderRepository = orderRepository;
+        this.stockReservationService = stockReservationService;
     }
 
     public Order findById(Long id) {
-        return orderRepository.findById(id).orElse(null);
+        return orderRepository.findWithLinesById(id).orElse(null);
     }
 
     public String updateOrderStatus(Long id, OrderStatus orderStatus) {
         Order order = orderRepository.findById(id).orElse(null);
         if (order != null) {
+            // an order only becomes PAID with stock behind every line; otherwise the money goes back
+            if (orderStatus == OrderStatus.PAID) {
+                String stockError = stockReservationService.commitOrder(id);
+                if (stockError != null) {
+                    stockReservationService.releaseOrder(id);
+                    order.setRefundRequired(true);
+                    orderRepository.save(order);
+                    return stockError;
+                }
+            }
             order.setStatus(orderStatus);
             orderRepository.save(order);
+            if (orderStatus == OrderStatus.CANCELED) {
+                stockReservationService.releaseOrder(id);
+            }
             return null;
         }
         return "order not found";
@@ -53,6 +69,10 @@ public class OrderService {
         try {
             Order order = orderRepository.findById(id).orElse(null);
             if (order != null) {
+                // shipped goods have left the warehouse, anything else goes back to stock
+                if (order.getStatus() != OrderStatus.SHIPPED) {
+                    stockReservationService.releaseOrder(id);
+                }
                 orderRepository.delete(order);
                 return null;
             }
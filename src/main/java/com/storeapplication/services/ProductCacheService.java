@@ -0,0 +1,89 @@
+package com.storeapplication.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.storeapplication.dto.response.CacheStatsResponseDto;
+import com.storeapplication.models.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Service
+public class ProductCacheService {
+
+    // key of the unscoped "all products" list inside the list cache
+    public static final Long ALL_PRODUCTS = -1L;
+
+    private final Cache<Long, Optional<Product>> products;
+    private final Cache<Long, List<Product>> productLists;
+
+    public ProductCacheService(@Value("${app.cache.products.max-size:10000}") long maxSize,
+                               @Value("${app.cache.products.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // lists are weighed by their length so one huge list cannot hide behind a small entry count
+        this.productLists = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((Long key, List<Product> list) -> list.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Product getProduct(Long id, Function<Long, Product> loader) {
+        return products.get(id, key -> Optional.ofNullable(loader.apply(key))).orElse(null);
+    }
+
+    public List<Product> getProductList(Long categoryId, Supplier<List<Product>> loader) {
+        return productLists.get(categoryId, key -> List.copyOf(loader.get()));
+    }
+
+    public void evictProduct(Long id) {
+        if (id != null) {
+            products.invalidate(id);
+        }
+    }
+
+    // stock changes touch one product but show up in every list that contains it
+    public void evictProductAndLists(Long id) {
+        Optional<Product> cached = products.getIfPresent(id);
+        evictProduct(id);
+        if (cached != null && cached.isPresent() && cached.get().getCategory() != null) {
+            evictCategory(cached.get().getCategory().getId());
+        } else {
+            productLists.invalidateAll();
+        }
+    }
+
+    public void evictCategory(Long categoryId) {
+        if (categoryId != null) {
+            productLists.invalidate(categoryId);
+        }
+        productLists.invalidate(ALL_PRODUCTS);
+    }
+
+    public void evictAll() {
+        products.invalidateAll();
+        productLists.invalidateAll();
+    }
+
+    public List<CacheStatsResponseDto> stats() {
+        return List.of(toDto("products", products.estimatedSize(), products.stats()),
+                toDto("productLists", productLists.estimatedSize(), productLists.stats()));
+    }
+
+    private CacheStatsResponseDto toDto(String name, long size, CacheStats stats) {
+        return new CacheStatsResponseDto(name, size, stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,87 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.CommentResponseDto;
+import com.storeapplication.dto.response.ProductDetailResponseDto;
+import com.storeapplication.models.Product;
+import com.storeapplication.repository.CommentRepository;
+import com.storeapplication.repository.WishListRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+@Service
+public class ProductDetailService {
+
+    private final ProductService productService;
+    private final CommentRepository commentRepository;
+    private final WishListRepository wishListRepository;
+
+    // every lookup blocks on its own JDBC round trip, so a virtual thread per lookup is the cheap way to overlap them
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Virtual threads are unbounded but connections are not: at most half the pool goes to overlapped
+    // lookups, the rest is left for ordinary requests. Without a permit a lookup runs on the caller.
+    private final Semaphore permits;
+
+    public ProductDetailService(ProductService productService, CommentRepository commentRepository,
+                                WishListRepository wishListRepository,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.productService = productService;
+        this.commentRepository = commentRepository;
+        this.wishListRepository = wishListRepository;
+        this.permits = new Semaphore(Math.max(1, poolSize / 2));
+    }
+
+    public ProductDetailResponseDto getDetail(Long productId, Long userId, int commentPage, int commentSize) {
+        CompletableFuture<Product> product = lookup(() -> productService.getProductById(productId));
+        CompletableFuture<List<CommentResponseDto>> comments = lookup(
+                () -> commentRepository.findPageByProductId(productId, PageRequest.of(commentPage, commentSize)));
+        CompletableFuture<Long> commentCount = lookup(() -> commentRepository.countByProduct_ProductId(productId));
+        CompletableFuture<Boolean> inWishList = userId == null
+                ? CompletableFuture.completedFuture(false)
+                : lookup(() -> wishListRepository.existsByUserIdAndProductProductId(userId, productId));
+
+        try {
+            CompletableFuture.allOf(product, comments, commentCount, inWishList).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        if (product.join() == null) {
+            return null;
+        }
+        return new ProductDetailResponseDto(product.join(), comments.join(), commentCount.join(), inWishList.join());
+    }
+
+    private <T> CompletableFuture<T> lookup(Supplier<T> query) {
+        if (!permits.tryAcquire()) {
+            try {
+                return CompletableFuture.completedFuture(query.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(query, executor).whenComplete((result, error) -> permits.release());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,291 @@
+package com.storeapplication.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.storeapplication.dto.request.ProductRequestDto;
+import com.storeapplication.dto.response.ImportResultDto;
+import com.storeapplication.models.Category;
+import com.storeapplication.repository.CategoryRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.*;
+
+@Service
+public class ProductImportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private static final int BATCH_SIZE = 1000;
+    // stop collecting row errors past this, the counters still cover every row
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    // products columns are varchar(255)
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final String INSERT_SQL = "INSERT INTO products (product_name, product_description, product_price, "
+            + "product_discount, product_quantity, category_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductCacheService productCacheService;
+    private final ProductSearchService productSearchService;
+    private final SuggestService suggestService;
+    private final FacetService facetService;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogEventService catalogEventService;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                CategoryRepository categoryRepository,
+                                ObjectMapper objectMapper, ProductCacheService productCacheService,
+                                ProductSearchService productSearchService, SuggestService suggestService,
+                                FacetService facetService, CatalogVersionService catalogVersionService,
+                                CatalogEventService catalogEventService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+        this.productCacheService = productCacheService;
+        this.productSearchService = productSearchService;
+        this.suggestService = suggestService;
+        this.facetService = facetService;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogEventService = catalogEventService;
+    }
+
+    // Rows are parsed and validated one line at a time and flushed in JDBC batches,
+    // so memory stays at one batch no matter how large the upload is.
+    public ImportResultDto importProducts(InputStream input, String format) throws IOException {
+        Set<Long> categories = new HashSet<>();
+        for (Category category : categoryRepository.findAll()) {
+            categories.add(category.getId());
+        }
+        Set<String> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT product_name, category_id FROM products",
+                (ResultSet rs) -> {
+                    existing.add(key(rs.getString(1), rs.getLong(2)));
+                });
+
+        ImportResultDto result = new ImportResultDto();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        List<Long> batchLines = new ArrayList<>(BATCH_SIZE);
+        Map<String, Integer> header = null;
+
+        // whatever made it in before a failure still has to reach search, suggest, facets and caches
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                // without a usable header no row can be read, so the whole file fails once
+                if (CSV.equals(format) && header == null) {
+                    try {
+                        header = parseHeader(line);
+                    } catch (IllegalArgumentException e) {
+                        reject(result, lineNumber, e.getMessage());
+                        break;
+                    }
+                    continue;
+                }
+
+                ProductRequestDto row;
+                try {
+                    if (CSV.equals(format)) {
+                        row = parseCsvRow(header, line);
+                    } else {
+                        row = objectMapper.readValue(line, ProductRequestDto.class);
+                    }
+                } catch (Exception e) {
+                    reject(result, lineNumber, "malformed row: " + e.getMessage());
+                    continue;
+                }
+
+                String error = validate(row, categories);
+                if (error == null && !existing.add(key(row.getProductName(), row.getCategoryId()))) {
+                    error = "product already exists with this category";
+                }
+                if (error != null) {
+                    reject(result, lineNumber, error);
+                    continue;
+                }
+
+                batch.add(new Object[]{row.getProductName(), row.getProductDescription(), row.getProductPrice(),
+                        row.getProductDiscount() == null ? 0 : row.getProductDiscount(),
+                        row.getProductQuantity() == null ? 0 : row.getProductQuantity(), row.getCategoryId()});
+                batchLines.add(lineNumber);
+                if (batch.size() >= BATCH_SIZE) {
+                    flush(batch, batchLines, existing, result);
+                }
+            }
+            flush(batch, batchLines, existing, result);
+        } finally {
+            if (result.getImported() > 0) {
+                refreshIndexes();
+            }
+        }
+        return result;
+    }
+
+    // A batch is all or nothing; when the database rejects it, its rows are retried one by one
+    // so only the offending lines fail and are reported.
+    private void flush(List<Object[]> batch, List<Long> lines, Set<String> existing, ImportResultDto result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+            result.setImported(result.getImported() + batch.size());
+        } catch (DataAccessException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                Object[] row = batch.get(i);
+                try {
+                    jdbcTemplate.update(INSERT_SQL, row);
+                    result.setImported(result.getImported() + 1);
+                } catch (DataAccessException rowError) {
+                    existing.remove(key((String) row[0], (Long) row[5]));
+                    reject(result, lines.get(i), "rejected by the database: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    private void refreshIndexes() {
+        productCacheService.evictAll();
+        productSearchService.rebuild();
+        suggestService.rebuild();
+        facetService.rebuild();
+        catalogVersionService.productsChanged();
+        catalogEventService.catalogReloaded();
+    }
+
+    private String validate(ProductRequestDto row, Set<Long> categories) {
+        if (row.getProductName() == null || row.getProductName().isBlank()) {
+            return "Product name is required";
+        }
+        if (row.getProductName().length() > MAX_TEXT_LENGTH) {
+            return "Product name is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.getProductDescription() == null || row.getProductDescription().isBlank()) {
+            return "Product description is required";
+        }
+        if (row.getProductDescription().length() > MAX_TEXT_LENGTH) {
+            return "Product description is longer than " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (row.getProductPrice() == null) {
+            return "Product price is required";
+        }
+        if (!Float.isFinite(row.getProductPrice())) {
+            return "Price must be a finite number";
+        }
+        if (row.getProductPrice() < 0) {
+            return "Price cannot be negative";
+        }
+        if (row.getProductDiscount() != null && row.getProductDiscount() < 0) {
+            return "Discount cannot be negative";
+        }
+        if (row.getProductDiscount() != null && row.getProductDiscount() > 100) {
+            return "Discount cannot be more than 100";
+        }
+        if (row.getProductQuantity() != null && row.getProductQuantity() < 0) {
+            return "Quantity cannot be negative";
+        }
+        if (row.getCategoryId() == null || !categories.contains(row.getCategoryId())) {
+            return "category not found with id " + row.getCategoryId();
+        }
+        return null;
+    }
+
+    private void reject(ImportResultDto result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportResultDto.RowErrorDto(line, message));
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim(), i);
+        }
+        if (!header.containsKey("productName") || !header.containsKey("categoryId")) {
+            throw new IllegalArgumentException("csv header must contain productName and categoryId");
+        }
+        return header;
+    }
+
+    private ProductRequestDto parseCsvRow(Map<String, Integer> header, String line) {
+        List<String> values = splitCsv(line);
+        ProductRequestDto row = new ProductRequestDto();
+        row.setProductName(column(header, values, "productName"));
+        row.setProductDescription(column(header, values, "productDescription"));
+        String price = column(header, values, "productPrice");
+        row.setProductPrice(price == null ? null : Float.valueOf(price));
+        String discount = column(header, values, "productDiscount");
+        row.setProductDiscount(discount == null ? null : Integer.valueOf(discount));
+        String quantity = column(header, values, "productQuantity");
+        row.setProductQuantity(quantity == null ? null : Integer.valueOf(quantity));
+        String categoryId = column(header, values, "categoryId");
+        row.setCategoryId(categoryId == null ? null : Long.valueOf(categoryId));
+        return row;
+    }
+
+    private String column(Map<String, Integer> header, List<String> values, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String key(String name, Long categoryId) {
+        return categoryId + ":" + name;
+    }
+}
@@ -0,0 +1,164 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.Product;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.utils.TextAnalyzer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class ProductSearchService {
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // a name match counts as this many description matches
+    private static final int NAME_BOOST = 3;
+
+    private final ProductRepository productRepository;
+
+    // term -> (productId -> weighted term frequency)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // productId -> distinct terms, so a document can be removed without scanning postings
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength = 0;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductSearchService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getProductId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        List<String> terms = TextAnalyzer.analyze(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Long, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int df = termPostings.size();
+                double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                    int tf = posting.getValue();
+                    int length = documentLengths.get(posting.getKey());
+                    double norm = tf + K1 * (1 - B + B * length / averageLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // keep only the best `limit` hits; ties go to the lower id so results are stable
+        Comparator<Map.Entry<Long, Double>> byScore = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(byScore);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private void addDocument(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextAnalyzer.analyze(product.getProductName(), term -> frequencies.merge(term, NAME_BOOST, Integer::sum));
+        TextAnalyzer.analyze(product.getProductDescription(), term -> frequencies.merge(term, 1, Integer::sum));
+
+        Long id = product.getProductId();
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>()).put(id, entry.getValue());
+            length += entry.getValue();
+        }
+        documentTerms.put(id, Set.copyOf(frequencies.keySet()));
+        documentLengths.put(id, length);
+        totalLength += length;
+    }
+
+    private void removeDocument(Long id) {
+        Set<String> terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Integer length = documentLengths.remove(id);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+}
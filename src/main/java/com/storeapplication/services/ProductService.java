@@ -1,33 +1,143 @@
 package com.storeapplication.services;
 
+import com.storeapplication.dto.request.ProductPageRequestDto;
+import com.storeapplication.dto.response.ProductPageResponseDto;
 import com.storeapplication.models.Product;
+import com.storeapplication.models.ProductSort;
 import com.storeapplication.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private FacetService facetService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private CatalogEventService catalogEventService;
+
+    @Autowired
+    private ImageStoreService imageStoreService;
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productCacheService.getProductList(ProductCacheService.ALL_PRODUCTS, productRepository::findAll);
+    }
+
+    public List<Product> getProductsByCategory(Long categoryId) {
+        return productCacheService.getProductList(categoryId, () -> productRepository.findByCategoryId(categoryId));
+    }
+
+    public List<Product> searchProducts(String query, int limit) {
+        List<Product> products = new ArrayList<>();
+        for (Long id : productSearchService.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)))) {
+            Product product = getProductById(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    public ProductPageResponseDto getProductsPage(ProductPageRequestDto req) {
+        if (req.getSort() == null) {
+            req.setSort(ProductSort.NEWEST);
+        }
+        int size = req.getSize() == null ? 20 : Math.max(1, Math.min(req.getSize(), MAX_PAGE_SIZE));
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (req.getCursor() != null && !req.getCursor().isBlank()) {
+            String[] parts = decodeCursor(req.getCursor());
+            if (!parts[0].equals(req.getSort().name())) {
+                throw new IllegalArgumentException("cursor does not match sort " + req.getSort());
+            }
+            afterId = Long.valueOf(parts[1]);
+            if (req.getSort() == ProductSort.PRICE_ASC || req.getSort() == ProductSort.PRICE_DESC) {
+                afterValue = Float.valueOf(parts[2]);
+            } else if (req.getSort() == ProductSort.NAME_ASC) {
+                afterValue = parts[2];
+            }
+        }
+
+        // one extra row tells us whether another page exists without a COUNT query
+        List<Product> rows = productRepository.findPage(req, afterValue, afterId, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Product> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? encodeCursor(req.getSort(), items.get(items.size() - 1)) : null;
+        return new ProductPageResponseDto(items, nextCursor, hasNext);
+    }
+
+    private String encodeCursor(ProductSort sort, Product last) {
+        String value = switch (sort) {
+            case PRICE_ASC, PRICE_DESC -> String.valueOf(last.getProductPrice());
+            case NAME_ASC -> last.getProductName();
+            default -> "";
+        };
+        String raw = sort.name() + ":" + last.getProductId() + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
     }
 
     public Product getProductById(Long id) {
-        return productRepository.findById(id).orElse(null);
+        return productCacheService.getProduct(id, key -> productRepository.findById(key).orElse(null));
     }
 
     public String createProduct(Product product) {
         Product findedProduct = productRepository.findByProductNameAndCategoryId(product.getProductName(),product.getCategory().getId()).orElse(null);
         if (findedProduct == null) {
             productRepository.save(product);
+            productCacheService.evictCategory(product.getCategory().getId());
+            productSearchService.index(product);
+            suggestService.putProduct(product);
+            facetService.upsert(product);
+            catalogVersionService.productChanged(product.getProductId());
+            catalogEventService.productChanged(CatalogEventService.CREATED, product);
             return null;
         }
+        imageStoreService.release(product.getProductImages());
         return "product already exists with this category";
     }
 
@@ -36,8 +146,12 @@ public class ProductService {
                 .orElse(null);
 
         if  (product == null) {
+            imageStoreService.release(productDetails.getProductImages());
             return "product not found";
         }
+        String oldImage = product.getProductImages();
+        Long oldCategoryId = product.getCategory() == null ? null : product.getCategory().getId();
+        int oldQuantity = product.getProductQuantity() == null ? 0 : product.getProductQuantity();
 
         if (product.getProductName() != null) {
             product.setProductName(productDetails.getProductName());
@@ -55,11 +169,16 @@ public class ProductService {
             product.setProductDiscount(productDetails.getProductDiscount());
         }
 
-        if (product.getProductQuantity() != null) {
-            product.setProductQuantity(productDetails.getProductQuantity());
+        int delta = 0;
+        if (product.getProductQuantity() != null && productDetails.getProductQuantity() != null) {
+            delta = productDetails.getProductQuantity() - oldQuantity;
         }
 
         if (product.getProductImages() != null) {
+            if (!Objects.equals(product.getProductImages(), productDetails.getProductImages())) {
+                // derivatives of the new image are recorded once they are generated
+                product.setImageSizes(null);
+            }
             product.setProductImages(productDetails.getProductImages());
         }
 
@@ -67,10 +186,46 @@ public class ProductService {
             product.setCategory(productDetails.getCategory());
         }
 
+        // the column is not written by save(); checkouts that commit while the admin edits are kept
+        String stockError = stockReservationService.adjustStock(id, delta);
+        if (stockError != null) {
+            imageStoreService.release(productDetails.getProductImages());
+            return stockError;
+        }
         productRepository.save(product);
+        // a new upload already holds its reference; the replaced image, or the duplicate reference
+        // of the same image uploaded again, is given back
+        if (productDetails.getProductImages() != null || !Objects.equals(oldImage, product.getProductImages())) {
+            imageStoreService.release(oldImage);
+        }
+        // the copy in memory still has the quantity read before the edit
+        productRepository.findById(id).ifPresent(stored -> product.setProductQuantity(stored.getProductQuantity()));
+        productCacheService.evictProduct(id);
+        productCacheService.evictCategory(oldCategoryId);
+        if (product.getCategory() != null) {
+            productCacheService.evictCategory(product.getCategory().getId());
+        }
+        productSearchService.index(product);
+        suggestService.putProduct(product);
+        facetService.upsert(product);
+        catalogVersionService.productChanged(id);
+        catalogEventService.productChanged(CatalogEventService.UPDATED, product);
         return null;
     }
 
+    public void recordImageSizes(String image, String sizes) {
+        List<Long> ids = productRepository.findIdsByImage(image);
+        if (ids.isEmpty() || productRepository.updateImageSizes(image, sizes) == 0) {
+            return;
+        }
+        for (Long id : ids) {
+            productCacheService.evictProductAndLists(id);
+            catalogVersionService.productChanged(id);
+            productRepository.findById(id).ifPresent(product ->
+                    catalogEventService.productChanged(CatalogEventService.UPDATED, product));
+        }
+    }
+
     public String deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElse(null);
@@ -78,6 +233,15 @@ public class ProductService {
             return "Product not found for this id :: " + id;
         }
         productRepository.delete(product);
+        imageStoreService.release(product.getProductImages());
+        hotStockService.disable(id);
+        productCacheService.evictProduct(id);
+        productCacheService.evictCategory(product.getCategory() == null ? null : product.getCategory().getId());
+        productSearchService.remove(id);
+        suggestService.removeProduct(id);
+        facetService.remove(id);
+        catalogVersionService.productChanged(id);
+        catalogEventService.productDeleted(id);
         return null;
     }
 }
\ No newline at end of file
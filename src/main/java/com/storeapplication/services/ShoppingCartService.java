@@ -1,10 +1,14 @@
 package com.storeapplication.services;
 
 
+import com.storeapplication.models.CartItem;
 import com.storeapplication.models.ShoppingCart;
 import com.storeapplication.repository.ShoppingCartRepository;
+import com.storeapplication.utils.Money;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
 @Service
 public class ShoppingCartService {
 
@@ -29,6 +33,22 @@ public class ShoppingCartService {
         return shoppingCartRepository.findByUserId(id).orElse(null);
     }
 
+    // A cart is not price-locked, so it is totalled at the products' current discounted prices.
+    // The sum stays in long minor units and only the result becomes a BigDecimal.
+    public BigDecimal total(ShoppingCart cart) {
+        long total = 0;
+        if (cart.getCartItems() != null) {
+            for (CartItem item : cart.getCartItems()) {
+                if (item.getProduct() == null || item.getQuantity() == null) {
+                    continue;
+                }
+                long unit = Money.effectivePrice(item.getProduct().getProductPrice(), item.getProduct().getProductDiscount());
+                total = Money.add(total, Money.times(unit, item.getQuantity()));
+            }
+        }
+        return Money.toBigDecimal(total);
+    }
+
     public String delete(Long id) {
         ShoppingCart shp = shoppingCartRepository.findById(id).orElse(null);
         if (shp != null) {
@@ -0,0 +1,296 @@
+package com.storeapplication.services;
+
+import com.storeapplication.models.Product;
+import com.storeapplication.models.ReservationStatus;
+import com.storeapplication.models.StockReservation;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.repository.StockReservationRepository;
+import com.storeapplication.utils.StripedLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class StockReservationService {
+
+    private static final int SWEEP_BATCH = 500;
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository reservationRepository;
+    private final ProductCacheService productCacheService;
+    private final FacetService facetService;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogEventService catalogEventService;
+    private final HotStockService hotStockService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration holdTime;
+    // Correctness comes from the conditional UPDATE alone; the stripes queue buyers of
+    // the same hot product inside the JVM instead of parking them all on the row lock,
+    // where each waiter would also pin a pooled connection. When reserve() joins a caller's
+    // transaction (adding an order line), the stripe is released before that transaction
+    // commits: it only orders the UPDATEs, the row lock they take is held until commit.
+    private final StripedLock locks;
+
+    public StockReservationService(ProductRepository productRepository,
+                                   StockReservationRepository reservationRepository,
+                                   ProductCacheService productCacheService, FacetService facetService,
+                                   CatalogVersionService catalogVersionService, CatalogEventService catalogEventService,
+                                   HotStockService hotStockService,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${app.stock.hold-minutes:15}") long holdMinutes,
+                                   @Value("${app.stock.lock-stripes:64}") int stripes) {
+        this.productRepository = productRepository;
+        this.reservationRepository = reservationRepository;
+        this.productCacheService = productCacheService;
+        this.facetService = facetService;
+        this.catalogVersionService = catalogVersionService;
+        this.catalogEventService = catalogEventService;
+        this.hotStockService = hotStockService;
+        this.transactionTemplate = transactionTemplate;
+        this.holdTime = Duration.ofMinutes(holdMinutes);
+        this.locks = new StripedLock(stripes);
+    }
+
+    public String reserve(Long productId, int quantity, Long orderId) {
+        return reserve(productId, quantity, orderId, null);
+    }
+
+    // Takes the stock right away and records a hold that payment commits or expiry gives back.
+    public String reserve(Long productId, int quantity, Long orderId, Long orderProductId) {
+        if (productId == null) {
+            return "product is required";
+        }
+        if (quantity <= 0) {
+            return "quantity must be greater than 0";
+        }
+        // hot products never queue on the products row, so they skip the stripe
+        if (hotStockService.isHot(productId)) {
+            return transactionTemplate.execute(status -> takeAndHold(productId, quantity, orderId, orderProductId));
+        }
+        ReentrantLock lock = locks.get(productId);
+        lock.lock();
+        try {
+            return transactionTemplate.execute(status -> takeAndHold(productId, quantity, orderId, orderProductId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String takeAndHold(Long productId, int quantity, Long orderId, Long orderProductId) {
+        if (!take(productId, quantity)) {
+            return productRepository.existsById(productId)
+                    ? "not enough stock for product " + productId
+                    : "product not found with id " + productId;
+        }
+        saveHold(productId, quantity, orderId, orderProductId);
+        return null;
+    }
+
+    // A product switching modes while this runs is taken again on the path it switched to
+    private boolean take(Long productId, int quantity) {
+        while (true) {
+            Boolean taken = hotStockService.isHot(productId)
+                    ? hotStockService.take(productId, quantity)
+                    : takeFromRow(productId, quantity);
+            if (taken != null) {
+                return taken;
+            }
+        }
+    }
+
+    // null when enable() seeded a counter before this got the row lock: that counter already
+    // has the stock, so the row is put back and the take goes to the counter instead
+    private Boolean takeFromRow(Long productId, int quantity) {
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            return false;
+        }
+        if (hotStockService.isHot(productId)) {
+            productRepository.incrementStock(productId, quantity);
+            return null;
+        }
+        stockChanged(productId, -quantity);
+        return true;
+    }
+
+    // An edit applied as the difference to the stock the editor read, on whichever path holds the
+    // stock: the row with its guard, or the hot counter with a ledger row, so the two never part ways.
+    public String adjustStock(Long productId, int delta) {
+        if (delta == 0) {
+            return null;
+        }
+        ReentrantLock lock = locks.get(productId);
+        lock.lock();
+        try {
+            return transactionTemplate.execute(status -> {
+                if (delta > 0) {
+                    putBack(productId, delta);
+                    return null;
+                }
+                return take(productId, -delta) ? null : "stock has dropped below " + (-delta) + " since it was read";
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // what a buyer can still get right now; hot products answer from their counter
+    public int availableStock(Product product) {
+        Long hot = hotStockService.available(product.getProductId());
+        if (hot != null) {
+            return (int) Math.min(Integer.MAX_VALUE, hot);
+        }
+        return product.getProductQuantity() == null ? 0 : product.getProductQuantity();
+    }
+
+    private void saveHold(Long productId, int quantity, Long orderId, Long orderProductId) {
+        StockReservation reservation = new StockReservation();
+        reservation.setProductId(productId);
+        reservation.setOrderId(orderId);
+        reservation.setOrderProductId(orderProductId);
+        reservation.setQuantity(quantity);
+        reservation.setStatus(ReservationStatus.HELD);
+        reservation.setExpiresAt(LocalDateTime.now().plus(holdTime));
+        reservationRepository.save(reservation);
+    }
+
+    // Payment went through: active holds become permanent. Holds that expired before the
+    // payment arrived are taken again if the stock is still there.
+    public String commitOrder(Long orderId) {
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            transactionTemplate.executeWithoutResult(status ->
+                    reservationRepository.transition(reservation.getId(), ReservationStatus.HELD, ReservationStatus.COMMITTED));
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.EXPIRED)) {
+            if (!retake(reservation)) {
+                missing.add(reservation.getProductId());
+            }
+        }
+        return missing.isEmpty() ? null : "not enough stock left for products " + missing;
+    }
+
+    // A failed payment gives the held stock back but treats the holds like expired ones,
+    // so a later successful retry on the same order can still take them again.
+    public void releaseHolds(Long orderId) {
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            settle(reservation, ReservationStatus.HELD, ReservationStatus.EXPIRED);
+        }
+    }
+
+    // the order was cancelled or deleted: everything it holds goes back on the shelf for good
+    public void releaseOrder(Long orderId) {
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            settle(reservation, ReservationStatus.HELD, ReservationStatus.RELEASED);
+        }
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.COMMITTED)) {
+            settle(reservation, ReservationStatus.COMMITTED, ReservationStatus.RELEASED);
+        }
+    }
+
+    // one order line maps to one hold; holds taken before lines were recorded on them fall back to the quantity
+    public void releaseLine(Long orderId, Long orderProductId, Long productId, int quantity) {
+        List<StockReservation> candidates = new ArrayList<>(
+                reservationRepository.findByOrderIdAndProductIdAndStatus(orderId, productId, ReservationStatus.HELD));
+        candidates.addAll(reservationRepository.findByOrderIdAndProductIdAndStatus(orderId, productId, ReservationStatus.COMMITTED));
+        StockReservation unlinked = null;
+        for (StockReservation reservation : candidates) {
+            if (orderProductId != null && orderProductId.equals(reservation.getOrderProductId())) {
+                settle(reservation, reservation.getStatus(), ReservationStatus.RELEASED);
+                return;
+            }
+            if (unlinked == null && reservation.getOrderProductId() == null && reservation.getQuantity() == quantity) {
+                unlinked = reservation;
+            }
+        }
+        if (unlinked != null) {
+            settle(unlinked, unlinked.getStatus(), ReservationStatus.RELEASED);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.sweep-interval-ms:30000}")
+    public void releaseExpired() {
+        List<StockReservation> expired;
+        do {
+            expired = reservationRepository.findByStatusAndExpiresAtBefore(ReservationStatus.HELD,
+                    LocalDateTime.now(), PageRequest.of(0, SWEEP_BATCH));
+            for (StockReservation reservation : expired) {
+                settle(reservation, ReservationStatus.HELD, ReservationStatus.EXPIRED);
+            }
+        } while (expired.size() == SWEEP_BATCH);
+    }
+
+    private void settle(StockReservation reservation, ReservationStatus from, ReservationStatus to) {
+        Long productId = reservation.getProductId();
+        ReentrantLock lock = locks.get(productId);
+        lock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // only the caller that wins the status change gives the stock back
+                if (reservationRepository.transition(reservation.getId(), from, to) == 1) {
+                    putBack(productId, reservation.getQuantity());
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean retake(StockReservation reservation) {
+        Long productId = reservation.getProductId();
+        ReentrantLock lock = locks.get(productId);
+        lock.lock();
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (reservationRepository.transition(reservation.getId(), ReservationStatus.EXPIRED, ReservationStatus.COMMITTED) == 0) {
+                    return true;
+                }
+                if (!take(productId, reservation.getQuantity())) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            }));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // same switch handling as take(): a row the counter was seeded from is left as it was
+    private void putBack(Long productId, int quantity) {
+        while (true) {
+            if (hotStockService.isHot(productId) && hotStockService.putBack(productId, quantity)) {
+                return;
+            }
+            productRepository.incrementStock(productId, quantity);
+            if (!hotStockService.isHot(productId)) {
+                stockChanged(productId, quantity);
+                return;
+            }
+            productRepository.decrementStock(productId, quantity);
+        }
+    }
+
+    // derived copies of the product are only touched once the new quantity is visible to other readers
+    private void stockChanged(Long productId, int delta) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCacheService.evictProductAndLists(productId);
+                facetService.adjustQuantity(productId, delta);
+                catalogVersionService.productChanged(productId);
+                catalogEventService.stockChanged(productId);
+            }
+        });
+    }
+}
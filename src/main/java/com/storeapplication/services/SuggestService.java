@@ -0,0 +1,471 @@
+package com.storeapplication.services;
+
+import com.storeapplication.dto.response.SuggestionResponseDto;
+import com.storeapplication.models.Category;
+import com.storeapplication.models.Product;
+import com.storeapplication.repository.CategoryRepository;
+import com.storeapplication.repository.OrderProductRepository;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.utils.TextAnalyzer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class SuggestService {
+
+    public static final String PRODUCT = "PRODUCT";
+    public static final String CATEGORY = "CATEGORY";
+
+    // how many suggestions every trie node keeps pre-ranked
+    private static final int TOP_K = 10;
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong((Suggestion s) -> s.popularity).reversed()
+            .thenComparingInt(s -> s.text.length())
+            .thenComparing(s -> s.text);
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderProductRepository orderProductRepository;
+
+    private Node root = new Node("", 0, 0);
+    // "PRODUCT:12" -> indexed suggestion, so updates and removals know which keys to touch
+    private final Map<String, Suggestion> entries = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // product id -> views not yet applied to the ranking
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    public SuggestService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          OrderProductRepository orderProductRepository) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.orderProductRepository = orderProductRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Long> sales = new HashMap<>();
+        for (Object[] row : orderProductRepository.sumQuantityByProduct()) {
+            sales.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        List<Product> products = productRepository.findAll();
+        Map<Long, Long> categorySizes = new HashMap<>();
+        for (Product product : products) {
+            if (product.getCategory() != null) {
+                categorySizes.merge(product.getCategory().getId(), 1L, Long::sum);
+            }
+        }
+        List<Category> categories = categoryRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            root = new Node("", 0, 0);
+            entries.clear();
+            for (Product product : products) {
+                add(new Suggestion(PRODUCT, product.getProductId(), product.getProductName(),
+                        sales.getOrDefault(product.getProductId(), 0L)));
+            }
+            for (Category category : categories) {
+                add(new Suggestion(CATEGORY, category.getId(), category.getName(),
+                        categorySizes.getOrDefault(category.getId(), 0L)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putProduct(Product product) {
+        put(PRODUCT, product.getProductId(), product.getProductName());
+    }
+
+    public void putCategory(Category category) {
+        put(CATEGORY, category.getId(), category.getName());
+    }
+
+    public void removeProduct(Long id) {
+        pendingViews.remove(id);
+        remove(PRODUCT, id);
+    }
+
+    public void removeCategory(Long id) {
+        remove(CATEGORY, id);
+    }
+
+    // Views only bump a counter; flushViews() folds them into the trie, so product pages never wait on the write lock
+    public void recordView(Long productId) {
+        if (productId != null) {
+            pendingViews.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.suggest.view-flush-ms:5000}")
+    public void flushViews() {
+        Map<Long, Long> views = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pendingViews.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                views.put(entry.getKey(), count);
+            }
+        }
+        if (views.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Long> view : views.entrySet()) {
+                Suggestion old = entries.get(PRODUCT + ":" + view.getKey());
+                if (old != null) {
+                    remove(old);
+                    add(new Suggestion(PRODUCT, view.getKey(), old.text, old.popularity + view.getValue()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionResponseDto> suggest(String prefix, int limit) {
+        String key = TextAnalyzer.normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            List<SuggestionResponseDto> result = new ArrayList<>();
+            for (Suggestion suggestion : node.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(new SuggestionResponseDto(suggestion.text, suggestion.type, suggestion.id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(String type, Long id, String text) {
+        if (id == null || text == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Suggestion old = entries.get(type + ":" + id);
+            long popularity = 0;
+            if (old != null) {
+                popularity = old.popularity;
+                remove(old);
+            }
+            add(new Suggestion(type, id, text, popularity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String type, Long id) {
+        lock.writeLock().lock();
+        try {
+            Suggestion old = entries.get(type + ":" + id);
+            if (old != null) {
+                remove(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Every word start of the normalized text is a key, so "سامسونگ" finds "گوشی سامسونگ".
+    private void add(Suggestion suggestion) {
+        entries.put(suggestion.type + ":" + suggestion.id, suggestion);
+        for (int start : keyStarts(suggestion.key)) {
+            insert(suggestion, start);
+        }
+    }
+
+    // A radix trie: every edge carries a run of characters, so a key costs at most one new node
+    // plus one split, and the labels are ranges of the suggestion's own normalized text.
+    private void insert(Suggestion suggestion, int start) {
+        String key = suggestion.key;
+        Node node = root;
+        node.top = offer(node.top, suggestion);
+        int i = start;
+        while (i < key.length()) {
+            int index = indexOf(node, key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key, i, key.length());
+                leaf.terminals = new Suggestion[]{suggestion};
+                leaf.top = leaf.terminals;
+                addChild(node, -index - 1, leaf);
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonLength(child, key, i);
+            if (common < child.length()) {
+                // the key leaves or ends inside the edge; the shared part becomes a node of its own
+                Node middle = new Node(child.text, child.from, child.from + common);
+                child.from += common;
+                middle.firsts = new char[]{child.first()};
+                middle.children = new Node[]{child};
+                middle.top = child.top;
+                node.children[index] = middle;
+                child = middle;
+            }
+            child.top = offer(child.top, suggestion);
+            i += common;
+            node = child;
+        }
+        node.terminals = offer(node.terminals, suggestion, Integer.MAX_VALUE);
+    }
+
+    private void remove(Suggestion suggestion) {
+        entries.remove(suggestion.type + ":" + suggestion.id);
+        for (int start : keyStarts(suggestion.key)) {
+            delete(suggestion, start);
+        }
+    }
+
+    private void delete(Suggestion suggestion, int start) {
+        String key = suggestion.key;
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = start;
+        while (i < key.length()) {
+            int index = indexOf(node, key.charAt(i));
+            if (index < 0) {
+                return;
+            }
+            node = node.children[index];
+            if (commonLength(node, key, i) < node.length()) {
+                return;
+            }
+            i += node.length();
+            path.add(node);
+        }
+        node.terminals = without(node.terminals, suggestion);
+
+        // walk back up: drop empty nodes, fold single children back into their parent's edge
+        // and re-rank the nodes that listed the removed entry
+        for (int j = path.size() - 1; j > 0; j--) {
+            Node current = path.get(j);
+            Node parent = path.get(j - 1);
+            if (current.terminals.length == 0 && current.children.length == 0) {
+                removeChild(parent, indexOf(parent, current.first()));
+            } else if (current.terminals.length == 0 && current.children.length == 1) {
+                Node child = current.children[0];
+                if (child.text == current.text && child.from == current.to) {
+                    child.from = current.from;
+                } else {
+                    child.text = current.label() + child.label();
+                    child.to = child.text.length();
+                    child.from = 0;
+                }
+                parent.children[indexOf(parent, current.first())] = child;
+            } else if (contains(current.top, suggestion)) {
+                rerank(current);
+            }
+        }
+        if (contains(root.top, suggestion)) {
+            rerank(root);
+        }
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = indexOf(node, prefix.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int length = Math.min(node.length(), prefix.length() - i);
+            if (!prefix.regionMatches(i, node.text, node.from, length)) {
+                return null;
+            }
+            // a prefix ending inside an edge has the same completions as the node below it
+            i += length;
+        }
+        return node;
+    }
+
+    private void rerank(Node node) {
+        Suggestion[] top = NO_SUGGESTIONS;
+        for (Suggestion suggestion : node.terminals) {
+            top = offer(top, suggestion);
+        }
+        for (Node child : node.children) {
+            for (Suggestion suggestion : child.top) {
+                top = offer(top, suggestion);
+            }
+        }
+        node.top = top;
+    }
+
+    private static Suggestion[] offer(Suggestion[] ranked, Suggestion suggestion) {
+        return offer(ranked, suggestion, TOP_K);
+    }
+
+    // Arrays are replaced, never changed in place, so a leaf can use its terminals as its top list
+    private static Suggestion[] offer(Suggestion[] ranked, Suggestion suggestion, int limit) {
+        if (contains(ranked, suggestion)) {
+            return ranked;
+        }
+        if (ranked.length >= limit && RANKING.compare(suggestion, ranked[ranked.length - 1]) >= 0) {
+            return ranked;
+        }
+        int index = Arrays.binarySearch(ranked, suggestion, RANKING);
+        index = index < 0 ? -index - 1 : index;
+        Suggestion[] result = new Suggestion[Math.min(limit, ranked.length + 1)];
+        System.arraycopy(ranked, 0, result, 0, index);
+        result[index] = suggestion;
+        System.arraycopy(ranked, index, result, index + 1, result.length - index - 1);
+        return result;
+    }
+
+    private static Suggestion[] without(Suggestion[] suggestions, Suggestion suggestion) {
+        for (int i = 0; i < suggestions.length; i++) {
+            if (suggestions[i] == suggestion) {
+                Suggestion[] result = new Suggestion[suggestions.length - 1];
+                System.arraycopy(suggestions, 0, result, 0, i);
+                System.arraycopy(suggestions, i + 1, result, i, result.length - i);
+                return result.length == 0 ? NO_SUGGESTIONS : result;
+            }
+        }
+        return suggestions;
+    }
+
+    private static boolean contains(Suggestion[] suggestions, Suggestion suggestion) {
+        for (Suggestion candidate : suggestions) {
+            if (candidate == suggestion) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // binary search over the first characters; negative is -(insertion point) - 1
+    private static int indexOf(Node node, char c) {
+        return Arrays.binarySearch(node.firsts, c);
+    }
+
+    private static void addChild(Node node, int index, Node child) {
+        char[] firsts = new char[node.firsts.length + 1];
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.firsts, 0, firsts, 0, index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        firsts[index] = child.first();
+        children[index] = child;
+        System.arraycopy(node.firsts, index, firsts, index + 1, node.firsts.length - index);
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        node.firsts = firsts;
+        node.children = children;
+    }
+
+    private static void removeChild(Node node, int index) {
+        if (node.children.length == 1) {
+            node.firsts = NO_CHARS;
+            node.children = NO_NODES;
+            return;
+        }
+        char[] firsts = new char[node.firsts.length - 1];
+        Node[] children = new Node[node.children.length - 1];
+        System.arraycopy(node.firsts, 0, firsts, 0, index);
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.firsts, index + 1, firsts, index, firsts.length - index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        node.firsts = firsts;
+        node.children = children;
+    }
+
+    // how far the edge into child and key from i agree; at least 1, since the first characters matched
+    private static int commonLength(Node child, String key, int i) {
+        int length = Math.min(child.length(), key.length() - i);
+        int common = 0;
+        while (common < length && child.text.charAt(child.from + common) == key.charAt(i + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static int[] keyStarts(String normalized) {
+        int count = normalized.isEmpty() ? 0 : 1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        for (int i = 0, k = 1; k < count; i++) {
+            if (normalized.charAt(i) == ' ') {
+                starts[k++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static class Node {
+        // the edge from the parent is text[from, to)
+        private String text;
+        private int from;
+        private int to;
+        // first character of every child's edge, sorted, and the children in the same order
+        private char[] firsts = NO_CHARS;
+        private Node[] children = NO_NODES;
+        // keys that end exactly here, ranked
+        private Suggestion[] terminals = NO_SUGGESTIONS;
+        private Suggestion[] top = NO_SUGGESTIONS;
+
+        private Node(String text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        private int length() {
+            return to - from;
+        }
+
+        private char first() {
+            return text.charAt(from);
+        }
+
+        private String label() {
+            return text.substring(from, to);
+        }
+    }
+
+    private static class Suggestion {
+        private final String type;
+        private final Long id;
+        private final String text;
+        // normalized text, which the trie's edge labels point into
+        private final String key;
+        private final long popularity;
+
+        private Suggestion(String type, Long id, String text, long popularity) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.key = TextAnalyzer.normalize(text);
+            this.popularity = popularity;
+        }
+    }
+}
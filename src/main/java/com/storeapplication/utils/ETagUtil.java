@@ -0,0 +1,24 @@
+package com.storeapplication.utils;
+
+public class ETagUtil {
+
+    // If-None-Match may hold a list of tags, "*" or weak tags; weak comparison is what RFC 9110 asks for here
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
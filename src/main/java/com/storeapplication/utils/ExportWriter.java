@@ -0,0 +1,112 @@
+package com.storeapplication.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+public class ExportWriter implements AutoCloseable {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    // push rows to the client every so often instead of holding them in the servlet buffer
+    private static final int FLUSH_EVERY = 1000;
+
+    private final Writer writer;
+    private final JsonGenerator generator;
+    private final boolean csv;
+    private final String[] columns;
+    private long rows = 0;
+
+    public ExportWriter(OutputStream out, String format, String... columns) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.generator = new JsonFactory().createGenerator(writer);
+        this.generator.setRootValueSeparator(new SerializedString("\n"));
+        this.csv = CSV.equals(format);
+        this.columns = columns;
+        if (csv) {
+            writeCsvLine(columns);
+        }
+    }
+
+    public static String contentType(String format) {
+        return CSV.equals(format) ? "text/csv;charset=UTF-8" : "application/x-ndjson";
+    }
+
+    public void write(Object[] row) throws IOException {
+        if (csv) {
+            writeCsvLine(row);
+        } else {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                writeValue(row[i]);
+            }
+            generator.writeEndObject();
+        }
+        if (++rows % FLUSH_EVERY == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!csv && rows > 0) {
+            generator.writeRaw('\n');
+        }
+        flush();
+    }
+
+    private void flush() throws IOException {
+        if (csv) {
+            writer.flush();
+        } else {
+            generator.flush();
+        }
+    }
+
+    private void writeCsvLine(Object[] values) throws IOException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(escapeCsv(values[i].toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Float number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
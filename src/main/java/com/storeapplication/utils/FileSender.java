@@ -0,0 +1,254 @@
+package com.storeapplication.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+
+// Sends a file without ever holding it on the heap. On Tomcat's NIO connector the bytes go out
+// through sendfile after the handler returns; anywhere else FileChannel.transferTo streams them
+// through a small buffer. Cached bytes take the same path from their ByteBuffer.
+// Handles conditional requests and a single byte range.
+public class FileSender {
+
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    public static final String REVALIDATE = "no-cache";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
+    public static void send(Path file, String cacheControl, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long[] range = begin(attributes.size(), attributes.lastModifiedTime().toMillis(), () -> contentType(file),
+                cacheControl, request, response);
+        if (range == null) {
+            return;
+        }
+        long start = range[0];
+        long end = range[1];
+
+        if (sendfileSupported(request)) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // the kernel copies the file to the socket; nothing held in memory can beat that
+    public static boolean sendfileSupported(HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+    }
+
+    // Same contract for bytes already in memory, typically a direct buffer from the image cache.
+    // The Servlet API only takes byte[], so the range goes out through one reused per-thread chunk.
+    public static void send(ByteBuffer data, long lastModified, String contentType, String cacheControl,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long[] range = begin(data.remaining(), lastModified, () -> contentType, cacheControl, request, response);
+        if (range == null) {
+            return;
+        }
+        ByteBuffer slice = data.duplicate();
+        slice.position(slice.position() + (int) range[0]);
+        slice.limit(slice.position() + (int) (range[1] - range[0] + 1));
+        byte[] chunk = CHUNK.get();
+        OutputStream out = response.getOutputStream();
+        while (slice.hasRemaining()) {
+            int n = Math.min(chunk.length, slice.remaining());
+            slice.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+
+    // Writes validators, answers 304/416/HEAD on its own and otherwise returns the {start, end} to send
+    private static long[] begin(long length, long lastModified, Supplier<String> contentType, String cacheControl,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        response.setContentType(contentType.get());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeApplies(request, etag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return null;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+
+    // If-None-Match wins over If-Modified-Since when both are present (RFC 9110 13.2.2)
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return ETagUtil.matches(ifNoneMatch, etag);
+        }
+        long since = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        // header dates have second precision
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    // a stale If-Range means the client's partial copy is outdated, so it gets the whole file
+    private static boolean rangeApplies(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    // {start, end} for one satisfiable range, {} to ignore the header, null for 416.
+    // Multiple ranges are answered with the full file, which the spec allows.
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: the last N bytes
+                if (last.isEmpty()) {
+                    return new long[0];
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start) {
+                // malformed, not unsatisfiable
+                return new long[0];
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    // Uploads are re-encoded, so the name's extension can lie; the first bytes don't.
+    static String contentType(Path file) {
+        byte[] head = new byte[12];
+        int read = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            // fall through to the generic type
+        }
+        return contentType(head, read);
+    }
+
+    public static String contentType(ByteBuffer data) {
+        byte[] head = new byte[12];
+        int read = Math.min(head.length, data.remaining());
+        data.duplicate().get(head, 0, read);
+        return contentType(head, read);
+    }
+
+    private static String contentType(byte[] head, int read) {
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (read >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (read >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+            return "image/gif";
+        }
+        if (read >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
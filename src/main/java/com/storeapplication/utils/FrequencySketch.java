@@ -0,0 +1,69 @@
+package com.storeapplication.utils;
+
+// Count-min sketch of how often keys were seen, TinyLFU style: four hashed counters per key,
+// the estimate is the smallest, and every counter is halved once sampleSize hits have been
+// counted so yesterday's popular keys fade out. Memory is fixed no matter how many keys pass.
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97CB3127, 0xB3AB6F5F, 0x2C1B3C6D, 0x297A2D39};
+
+    private final int[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(16, expectedKeys) - 1) << 1;
+        counters = new int[width * DEPTH];
+        mask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    // counts one more hit and returns the estimate including it
+    public synchronized int increment(Object key) {
+        int h = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(h, i);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+            }
+            min = Math.min(min, counters[index]);
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+        return min;
+    }
+
+    public synchronized int frequency(Object key) {
+        int h = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, counters[indexOf(h, i)]);
+        }
+        return min;
+    }
+
+    private void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    // each row gets its own hash and its own slice of the table
+    private int indexOf(int h, int row) {
+        int x = (h ^ SEEDS[row]) * 0x9E3779B9;
+        x ^= x >>> 15;
+        return row * (mask + 1) + (x & mask);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+}
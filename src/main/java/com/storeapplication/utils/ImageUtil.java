@@ -1,77 +1,420 @@
 package com.storeapplication.utils;
 
 
-import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifReader;
 
+import com.storeapplication.models.ImageSize;
+
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
 
 import org.springframework.web.multipart.MultipartFile;
 
 public class ImageUtil {
 
-    public static String saveImageWithOrientation(MultipartFile file, String uploadDir) throws Exception {
-        if (file == null || file.isEmpty()) {
-            return null;
-        }
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}\\.jpg");
 
-        File dir = new File(uploadDir);
-        if (!dir.exists()) {
-            dir.mkdirs();
+    // Bytes coming off the network pass through this and nothing else on their way to disk
+    private static final ThreadLocal<ByteBuffer> SPOOL_CHUNK = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    // The upload is streamed to a temp file and hashed on the way; EXIF and pixels are then read from
+    // that file, so heap use does not grow with the upload size. Close the returned upload to delete it.
+    public static Upload readUpload(MultipartFile file) throws IOException {
+        Path spool = createSpoolFile("upload", ".part");
+        try (InputStream inputStream = file.getInputStream();
+             FileChannel out = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+            MessageDigest digest = sha256Digest();
+            long size = append(Channels.newChannel(inputStream), out, digest, Long.MAX_VALUE);
+            return new Upload(spool, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
         }
+    }
 
-        String fileName = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        File outputFile = new File(dir, fileName);
+    // a fully received file handed over together with its hash, which is computed here if unknown
+    public static Upload spooledUpload(Path file, String sha256) throws IOException {
+        if (sha256 == null) {
+            MessageDigest digest = sha256Digest();
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer chunk = SPOOL_CHUNK.get();
+                chunk.clear();
+                while (in.read(chunk) >= 0) {
+                    chunk.flip();
+                    digest.update(chunk);
+                    chunk.clear();
+                }
+            }
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        }
+        return new Upload(file, Files.size(file), sha256);
+    }
 
-        InputStream inputStream = file.getInputStream();
-        BufferedImage img = ImageIO.read(inputStream);
+    // Copies at most limit bytes from src to out's position, updating the digest with exactly what
+    // was written. A null digest skips hashing. Returns the number of bytes copied.
+    public static long append(ReadableByteChannel src, FileChannel out, MessageDigest digest, long limit) throws IOException {
+        ByteBuffer chunk = SPOOL_CHUNK.get();
+        long copied = 0;
+        while (copied < limit) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), limit - copied));
+            int read = src.read(chunk);
+            if (read < 0) {
+                break;
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                out.write(chunk);
+            }
+            if (digest != null) {
+                chunk.flip();
+                digest.update(chunk);
+            }
+            copied += read;
+        }
+        return copied;
+    }
 
-        inputStream.close();
-        inputStream = file.getInputStream();
-        Metadata metadata = ImageMetadataReader.readMetadata(inputStream);
-        int orientation = 1;
-        var dirExif = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
-        if (dirExif != null && dirExif.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
-            orientation = dirExif.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+    public static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        inputStream.close();
+    }
 
-        BufferedImage rotated = applyOrientation(img, orientation);
+    // Partial uploads live here, inside the upload root so finished ones are on the same file system
+    // as the store, and never reachable through uploadFile().
+    public static Path incomingDir() {
+        return uploadRoot().resolve(".incoming");
+    }
 
-        ImageIO.write(rotated, "jpg", outputFile);
+    public static Path createSpoolFile(String prefix, String suffix) throws IOException {
+        Files.createDirectories(incomingDir());
+        return Files.createTempFile(incomingDir(), prefix, suffix);
+    }
 
-        return outputFile.getAbsolutePath();
+    // only the JPEG APP1 segment is parsed; other formats carry no orientation worth honouring
+    private static int readOrientation(Path file) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            in.mark(2);
+            if (in.read() != 0xFF || in.read() != 0xD8) {
+                return 1;
+            }
+            in.reset();
+            Metadata metadata = JpegMetadataReader.readMetadata(in, List.of(new ExifReader()));
+            var dirExif = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            if (dirExif != null && dirExif.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+                return dirExif.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+            }
+        } catch (Exception e) {
+            // broken EXIF should not reject an image that decodes fine
+        }
+        return 1;
     }
 
+    // Every EXIF orientation is a rotation and/or mirror, so each source pixel lands at
+    // start + x * xStep + y * yStep in the output, with width and height swapped for 5-8.
+    // Pixels are copied exactly; nothing is interpolated.
     private static BufferedImage applyOrientation(BufferedImage img, int orientation) {
-        int width = img.getWidth();
-        int height = img.getHeight();
-        AffineTransform transform = new AffineTransform();
-
+        if (orientation < 2 || orientation > 8) {
+            return img;
+        }
+        int w = img.getWidth();
+        int h = img.getHeight();
+        boolean swap = orientation >= 5;
+        int start;
+        int xStep;
+        int yStep;
         switch (orientation) {
-            case 6: // 90 درجه
-                transform.translate(height, 0);
-                transform.rotate(Math.toRadians(90));
-                return new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR)
-                        .filter(img, new BufferedImage(height, width, img.getType()));
-            case 3: // 180 درجه
-                transform.translate(width, height);
-                transform.rotate(Math.toRadians(180));
-                return new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR)
-                        .filter(img, new BufferedImage(width, height, img.getType()));
-            case 8: // 270 درجه
-                transform.translate(0, width);
-                transform.rotate(Math.toRadians(270));
-                return new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR)
-                        .filter(img, new BufferedImage(height, width, img.getType()));
+            case 2: start = w - 1; xStep = -1; yStep = w; break;          // mirrored
+            case 3: start = w * h - 1; xStep = -1; yStep = -w; break;     // 180 درجه
+            case 4: start = (h - 1) * w; xStep = 1; yStep = -w; break;    // flipped
+            case 5: start = 0; xStep = h; yStep = 1; break;               // transposed
+            case 6: start = h - 1; xStep = h; yStep = -1; break;          // 90 درجه
+            case 7: start = w * h - 1; xStep = -h; yStep = -1; break;     // transversed
+            default: start = (w - 1) * h; xStep = -h; yStep = 1; break;   // 270 درجه
+        }
+        int outWidth = swap ? h : w;
+        int outHeight = swap ? w : h;
+
+        int stride = pixelStride(img);
+        if (stride == 0) {
+            // uncommon layouts go through packed ints once
+            BufferedImage out = new BufferedImage(outWidth, outHeight,
+                    img.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            int[] src = img.getRGB(0, 0, w, h, null, 0, w);
+            transpose(src, ((DataBufferInt) out.getRaster().getDataBuffer()).getData(), w, h, start, xStep, yStep);
+            return out;
+        }
+
+        BufferedImage out = new BufferedImage(outWidth, outHeight, img.getType());
+        DataBuffer src = img.getRaster().getDataBuffer();
+        DataBuffer dst = out.getRaster().getDataBuffer();
+        if (src instanceof DataBufferInt) {
+            transpose(((DataBufferInt) src).getData(), ((DataBufferInt) dst).getData(), w, h, start, xStep, yStep);
+        } else {
+            transpose(((DataBufferByte) src).getData(), ((DataBufferByte) dst).getData(), stride, w, h, start, xStep, yStep);
+        }
+        return out;
+    }
+
+    private static void transpose(int[] src, int[] dst, int w, int h, int start, int xStep, int yStep) {
+        int from = 0;
+        for (int y = 0; y < h; y++) {
+            int to = start + y * yStep;
+            for (int x = 0; x < w; x++) {
+                dst[to] = src[from++];
+                to += xStep;
+            }
+        }
+    }
+
+    private static void transpose(byte[] src, byte[] dst, int stride, int w, int h, int start, int xStep, int yStep) {
+        int from = 0;
+        for (int y = 0; y < h; y++) {
+            int to = (start + y * yStep) * stride;
+            int step = xStep * stride;
+            for (int x = 0; x < w; x++) {
+                for (int b = 0; b < stride; b++) {
+                    dst[to + b] = src[from++];
+                }
+                to += step;
+            }
+        }
+    }
+
+    // elements per pixel for the layouts ImageIO decodes into, 0 for anything that needs the slow path
+    private static int pixelStride(BufferedImage img) {
+        int stride;
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+                stride = 1;
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                stride = 3;
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+                stride = 4;
+                break;
             default:
-                return img;
+                return 0;
+        }
+        DataBuffer data = img.getRaster().getDataBuffer();
+        // a sub-image shares a larger buffer and cannot be walked as one tight array
+        if (data.getNumBanks() != 1 || data.getSize() != img.getWidth() * img.getHeight() * stride) {
+            return 0;
+        }
+        return stride;
+    }
+
+    // a file name from the URL resolved inside the upload directory, null if it tries to leave it
+    public static Path uploadFile(String fileName) {
+        if (CONTENT_NAME.matcher(fileName).matches()) {
+            return contentPath(fileName.substring(0, fileName.length() - 4));
+        }
+        Path dir = uploadRoot();
+        Path file = dir.resolve(fileName).normalize();
+        return file.startsWith(dir) && !file.equals(dir) && !file.startsWith(incomingDir()) ? file : null;
+    }
+
+    public static Path uploadRoot() {
+        return Path.of(System.getProperty("user.dir"), "upload").toAbsolutePath().normalize();
+    }
+
+    // two levels of 256 directories keep every directory small: upload/3f/a2/3fa2...e1.jpg
+    public static Path contentPath(String hash) {
+        return uploadRoot().resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".jpg");
+    }
+
+    // the hash behind a stored image path or URL file name, null for uploads that predate the content store
+    public static String contentHash(String image) {
+        if (image == null) {
+            return null;
+        }
+        String fileName = Path.of(image).getFileName().toString();
+        return CONTENT_NAME.matcher(fileName).matches() ? fileName.substring(0, fileName.length() - 4) : null;
+    }
+
+    // derivatives sit next to the original: 1712_photo.jpg -> 1712_photo.jpg.card.jpg
+    public static Path variantPath(Path original, ImageSize size) {
+        return original.resolveSibling(original.getFileName() + "." + size.key() + ".jpg");
+    }
+
+    // the requested derivative if it has been generated, the original otherwise
+    public static Path pickVariant(Path original, String size) {
+        ImageSize imageSize = ImageSize.fromKey(size);
+        if (imageSize == null) {
+            return original;
+        }
+        Path variant = variantPath(original, imageSize);
+        return Files.exists(variant) ? variant : original;
+    }
+
+    // Halves with bilinear filtering until close to the target and finishes with one bicubic step.
+    // A single large bilinear/bicubic jump only samples a few source pixels per output pixel and aliases.
+    public static BufferedImage downscale(BufferedImage src, int maxEdge) {
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(src.getWidth(), src.getHeight()));
+        return scale(src, Math.max(1, (int) Math.round(src.getWidth() * scale)),
+                Math.max(1, (int) Math.round(src.getHeight() * scale)));
+    }
+
+    public static BufferedImage scale(BufferedImage src, int targetWidth, int targetHeight) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        BufferedImage current = toRgb(src);
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = resize(current, width, height, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        if (width != targetWidth || height != targetHeight) {
+            current = resize(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        }
+        return current;
+    }
+
+    // width and height from the file header, without decoding any pixels
+    public static Dimension readDimensions(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                throw new IOException("cannot open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static void writeJpeg(BufferedImage image, File target, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(toRgb(image), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // JPEG has no alpha and ImageIO writes odd colors for ARGB input, so flatten onto white first
+    private static BufferedImage toRgb(BufferedImage src) {
+        if (src.getType() == BufferedImage.TYPE_INT_RGB) {
+            return src;
+        }
+        BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(src, 0, 0, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage resize(BufferedImage src, int width, int height, Object interpolation) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    // An upload spooled to a file under incomingDir(), hashed while it was received
+    public static class Upload implements AutoCloseable {
+
+        private final Path file;
+        private final long size;
+        private final String sha256;
+
+        private Upload(Path file, long size, String sha256) {
+            this.file = file;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public Path path() {
+            return file;
+        }
+
+        public long size() {
+            return size;
+        }
+
+        public String sha256() {
+            return sha256;
+        }
+
+        // decodes, fixes the EXIF orientation by moving pixels instead of resampling them and writes a JPEG
+        public void writeOriented(File target, float quality) throws IOException {
+            BufferedImage img = ImageIO.read(file.toFile());
+            if (img == null) {
+                throw new IOException("unsupported image format");
+            }
+            writeJpeg(applyOrientation(img, readOrientation(file)), target, quality);
+        }
+
+        @Override
+        public void close() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // the incoming sweep removes it once it is old enough
+            }
         }
     }
 }
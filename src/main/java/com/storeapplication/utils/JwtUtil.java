@@ -55,6 +55,16 @@ public class JwtUtil {
         return (List<String>) claims.get("roles");
     }
 
+    public Long extractUserId(String token) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(getSignKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        Object id = claims.get("id");
+        return id instanceof Number number ? number.longValue() : null;
+    }
+
     public boolean isTokenValid(String token) {
         try {
             Jwts.parserBuilder().setSigningKey(getSignKey()).build().parseClaimsJws(token);
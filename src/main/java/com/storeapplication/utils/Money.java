@@ -0,0 +1,60 @@
+package com.storeapplication.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Amounts travel as plain long minor units (1/100 of the currency unit). All arithmetic
+// works on primitives, so summing a cart allocates nothing until the result is turned back
+// into a BigDecimal at the edge. Order lines and totals are still BigDecimal columns, so
+// adding or removing a line converts both on the way in and the way out.
+public final class Money {
+
+    public static final int SCALE = 2;
+    private static final long UNIT = 100;
+
+    private Money() {
+    }
+
+    public static long ofMajor(float amount) {
+        return Math.round(amount * (double) UNIT);
+    }
+
+    public static long ofMajor(Float amount) {
+        return amount == null ? 0 : ofMajor(amount.floatValue());
+    }
+
+    // more than two decimals are rounded half up
+    public static long of(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long times(long minor, long quantity) {
+        return Math.multiplyExact(minor, quantity);
+    }
+
+    // percent off, rounded half up to the minor unit; the percent is clamped to 0..100
+    public static long discounted(long minor, int percent) {
+        int clamped = Math.max(0, Math.min(100, percent));
+        long kept = Math.multiplyExact(minor, 100 - clamped);
+        return kept >= 0 ? (kept + 50) / 100 : -((-kept + 50) / 100);
+    }
+
+    public static long effectivePrice(Float price, Integer discountPercent) {
+        return discounted(ofMajor(price), discountPercent == null ? 0 : discountPercent);
+    }
+}
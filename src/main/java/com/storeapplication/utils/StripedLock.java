@@ -0,0 +1,33 @@
+package com.storeapplication.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// A fixed set of locks shared by key hash: memory stays constant no matter how many
+// keys exist, and two keys only contend when they land on the same stripe.
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public ReentrantLock get(Object key) {
+        int h = key.hashCode();
+        // spread the high bits so sequential ids do not walk the stripes in lockstep
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return locks[h & mask];
+    }
+
+    public int size() {
+        return locks.length;
+    }
+}
@@ -0,0 +1,105 @@
+package com.storeapplication.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class TextAnalyzer {
+
+    // returned by fold() for characters that are dropped without breaking the token
+    private static final char SKIP = 0;
+
+    public static List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        analyze(text, tokens::add);
+        return tokens;
+    }
+
+    // Single pass over the input: every character is folded in place into one
+    // reusable buffer and only the finished tokens are allocated as strings.
+    public static void analyze(String text, Consumer<String> sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        char[] buffer = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char folded = fold(c);
+            if (folded == SKIP) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(folded)) {
+                buffer[length++] = folded;
+            } else if (length > 0) {
+                sink.accept(new String(buffer, 0, length));
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            sink.accept(new String(buffer, 0, length));
+        }
+    }
+
+    // Normalizes a whole string (letters folded, marks removed) but keeps separators as single spaces.
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        analyze(text, token -> {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(token);
+        });
+        return builder.toString();
+    }
+
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        switch (c) {
+            // Arabic yeh, alef maksura and yeh with hamza -> Persian yeh
+            case 'ي', 'ى', 'ئ' -> {
+                return 'ی';
+            }
+            // Arabic kaf -> Persian keheh
+            case 'ك' -> {
+                return 'ک';
+            }
+            // alef with madda / hamza above / hamza below / wasla -> bare alef
+            case 'آ', 'أ', 'إ', 'ٱ' -> {
+                return 'ا';
+            }
+            // teh marbuta and heh with yeh above -> heh
+            case 'ة', 'ۀ' -> {
+                return 'ه';
+            }
+            // waw with hamza -> waw
+            case 'ؤ' -> {
+                return 'و';
+            }
+            // tatweel, ZWNJ, ZWJ and other joiners never split a word
+            case '\u0640', '\u200C', '\u200D', '\u200E', '\u200F', '\uFEFF' -> {
+                return SKIP;
+            }
+            default -> {
+            }
+        }
+        // Persian and Arabic-Indic digits -> ASCII
+        if (c >= '۰' && c <= '۹') {
+            return (char) ('0' + (c - '۰'));
+        }
+        if (c >= '٠' && c <= '٩') {
+            return (char) ('0' + (c - '٠'));
+        }
+        // harakat, tanwin, shadda, sukun and superscript alef
+        if ((c >= '\u064B' && c <= '\u065F') || c == '\u0670') {
+            return SKIP;
+        }
+        return Character.toLowerCase(c);
+    }
+}
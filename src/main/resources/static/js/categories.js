@@ -138,7 +138,7 @@ function displayCategories() {
                     category.categoryImage
                         ? `<img src="/api/categories/images/${extractFilename(
                               category.categoryImage
-                          )}" alt="${category.name}" />`
+                          )}?size=card" alt="${category.name}" />`
                         : `<div class="no-image"><i class="fas fa-image"></i></div>`
                 }
 
@@ -46,7 +46,7 @@ function displayCategories() {
 // Create category card HTML
 function createCategoryCard(category) {
     const imagePath = category.categoryImage
-        ? `/api/categories/images/${extractFilename(category.categoryImage)}`
+        ? `/api/categories/images/${extractFilename(category.categoryImage)}?size=card`
         : null;
 
     return `
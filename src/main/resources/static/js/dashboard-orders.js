@@ -341,7 +341,7 @@ function createOrderElement(order) {
 function createOrderItemHTML(item) {
     const productName = item.product?.productName || "محصول نامشخص";
     const productImage = item.product?.productImages
-        ? `/api/products/images/${extractFilename(item.product.productImages)}`
+        ? `/api/products/images/${extractFilename(item.product.productImages)}?size=thumb`
         : "/images/placeholder.svg";
     const quantity = item.quantity || 0;
 
@@ -52,6 +52,7 @@ function initializeDashboardProducts() {
 function initializePage() {
     loadCategories();
     loadProducts();
+    subscribeCatalogEvents();
     initializeCreateForm();
     initializeEditForm();
 
@@ -175,6 +176,52 @@ async function loadProducts() {
     }
 }
 
+// Live product changes instead of re-downloading the whole list
+function subscribeCatalogEvents() {
+    if (!window.EventSource) {
+        return;
+    }
+    // the browser reconnects on its own and sends Last-Event-ID, so only deltas since the drop arrive
+    const source = new EventSource("/api/catalog/events");
+
+    source.addEventListener("product", async (e) => {
+        const event = JSON.parse(e.data);
+        const index = allProducts.findIndex((p) => p.productId === event.entityId);
+
+        if (event.action === "DELETED") {
+            if (index >= 0) allProducts.splice(index, 1);
+        } else if (event.action === "STOCK") {
+            if (index < 0) return;
+            const response = await fetch(`/api/products/${event.entityId}`);
+            if (!response.ok) return;
+            allProducts[index] = await response.json();
+        } else {
+            const d = event.data;
+            const changed = {
+                ...(index >= 0 ? allProducts[index] : {}),
+                productId: d.id,
+                productName: d.productName,
+                productDescription: d.productDescription,
+                productPrice: d.productPrice,
+                productDiscount: d.productDiscount,
+                productQuantity: d.productQuantity,
+                productImages: d.productImages,
+            };
+            if (index >= 0) {
+                allProducts[index] = changed;
+            } else {
+                allProducts.unshift(changed);
+            }
+        }
+        displayProducts();
+        updatePagination();
+    });
+
+    source.addEventListener("catalog", () => loadProducts());
+    // we fell too far behind for deltas, one full reload catches up
+    source.addEventListener("reset", () => loadProducts());
+}
+
 // Display products in grid with pagination
 function displayProducts() {
     const grid = document.getElementById("products-grid");
@@ -211,7 +258,7 @@ function createProductCard(product) {
         : product.productPrice;
 
     const imagePath = product.productImages
-        ? `/api/products/images/${extractFilename(product.productImages)}`
+        ? `/api/products/images/${extractFilename(product.productImages)}?size=card`
         : null;
 
     // Escape product name for HTML attributes
@@ -44,7 +44,7 @@ function createMainPageProductCard(product) {
     productCard.className = "product-card";
 
     const imagePath = product.productImages
-        ? `/api/products/images/${extractFilename(product.productImages)}`
+        ? `/api/products/images/${extractFilename(product.productImages)}?size=card`
         : "https://via.placeholder.com/300x200/cccccc/666666?text=بدون+تصویر";
 
     const hasDiscount = product.productDiscount && product.productDiscount > 0;
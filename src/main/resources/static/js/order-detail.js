@@ -299,7 +299,7 @@ function createProductElement(item) {
 
     const productName = item.product?.productName || "محصول نامشخص";
     const productImage = item.product?.productImages
-        ? `/api/products/images/${extractFilename(item.product.productImages)}`
+        ? `/api/products/images/${extractFilename(item.product.productImages)}?size=thumb`
         : "/images/placeholder.svg";
     const originalPrice = item.product?.productPrice || 0; // This is the original price
     const discount = item.product?.productDiscount || 0;
@@ -105,7 +105,7 @@ function displayProductDetails(product) {
     const mainImage = document.getElementById("main-image");
     const imagePath =
         product.productImages && typeof extractFilename === "function"
-            ? `/api/products/images/${extractFilename(product.productImages)}`
+            ? `/api/products/images/${extractFilename(product.productImages)}?size=zoom`
             : null;
 
     if (mainImage) {
@@ -102,7 +102,7 @@ function createProductCard(product) {
         : product.productPrice;
 
     const imagePath = product.productImages
-        ? `/api/products/images/${extractFilename(product.productImages)}`
+        ? `/api/products/images/${extractFilename(product.productImages)}?size=card`
         : null;
 
     // Escape dangerous characters for alt text
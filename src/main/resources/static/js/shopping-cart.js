@@ -83,7 +83,7 @@ function createCartItemElement(item) {
     // Get product details from API response
     const productName = item.product?.productName || "محصول نامشخص";
     const productImage = item.product?.productImages
-        ? `/api/products/images/${extractFilename(item.product.productImages)}`
+        ? `/api/products/images/${extractFilename(item.product.productImages)}?size=thumb`
         : "/images/placeholder.svg";
     const originalPrice = item.product?.productPrice || 0;
     const discount = item.product?.productDiscount || 0;
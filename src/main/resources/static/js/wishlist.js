@@ -112,7 +112,7 @@ function createWishlistCard(item) {
         : product.productPrice;
 
     const imagePath = product.productImages
-        ? `/api/products/images/${extractFilename(product.productImages)}`
+        ? `/api/products/images/${extractFilename(product.productImages)}?size=card`
         : null;
 
     // Escape product name for attributes
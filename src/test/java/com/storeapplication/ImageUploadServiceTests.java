@@ -0,0 +1,64 @@
+package com.storeapplication;
+
+import com.storeapplication.dto.response.UploadStatusDto;
+import com.storeapplication.services.ImageUploadService;
+import com.storeapplication.utils.ImageUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageUploadServiceTests {
+
+    private static final int SIZE = 200_000;
+
+    private final ImageUploadService service = new ImageUploadService(1_000_000, 1_000_000, 60);
+
+    // the connection drops halfway through a chunk; the client asks for the offset and carries on
+    @Test
+    void resumesAfterAFailedChunk() throws IOException {
+        byte[] content = new byte[SIZE];
+        new Random(42).nextBytes(content);
+        String id = service.create(SIZE).getUploadId();
+
+        assertThrows(IOException.class, () -> service.append(id, 0, dropsAfter(content, 100_000)));
+        UploadStatusDto status = service.status(id);
+        assertTrue(status.getOffset() > 0 && status.getOffset() < SIZE);
+
+        int offset = status.getOffset().intValue();
+        status = service.append(id, offset, new ByteArrayInputStream(Arrays.copyOfRange(content, offset, SIZE)));
+        assertTrue(status.getComplete());
+
+        ImageUtil.Upload upload = service.take(id);
+        assertArrayEquals(content, Files.readAllBytes(upload.path()));
+        // the digest was dropped with the failed chunk, so the hash comes from the file
+        assertEquals(HexFormat.of().formatHex(ImageUtil.sha256Digest().digest(content)), upload.sha256());
+        upload.close();
+        assertFalse(Files.exists(upload.path()));
+    }
+
+    private static InputStream dropsAfter(byte[] content, int bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(content, 0, bytes)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read < 0) {
+                    throw new IOException("connection reset");
+                }
+                return read;
+            }
+        };
+    }
+}
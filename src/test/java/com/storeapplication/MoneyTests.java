@@ -0,0 +1,40 @@
+package com.storeapplication;
+
+import com.storeapplication.utils.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTests {
+
+    @Test
+    void convertsAtTheEdges() {
+        assertEquals(199999, Money.ofMajor(1999.99f));
+        assertEquals(10, Money.ofMajor(0.1f));
+        assertEquals(0, Money.ofMajor((Float) null));
+        assertEquals(1235, Money.of(new BigDecimal("12.345")));
+        assertEquals(0, Money.of(null));
+        assertEquals(new BigDecimal("12.35"), Money.toBigDecimal(1235));
+    }
+
+    @Test
+    void discountsRoundHalfUp() {
+        assertEquals(900, Money.discounted(1000, 10));
+        // 333 * 0.85 = 283.05
+        assertEquals(283, Money.discounted(333, 15));
+        // 5 * 0.5 = 2.5
+        assertEquals(3, Money.discounted(5, 50));
+        assertEquals(1000, Money.discounted(1000, -5));
+        assertEquals(0, Money.discounted(1000, 150));
+        assertEquals(BigDecimal.valueOf(85000, 2), Money.toBigDecimal(Money.effectivePrice(1000f, 15)));
+    }
+
+    @Test
+    void overflowFailsInsteadOfWrapping() {
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+    }
+}
@@ -0,0 +1,163 @@
+package com.storeapplication;
+
+import com.storeapplication.models.*;
+import com.storeapplication.repository.*;
+import com.storeapplication.services.ProductCacheService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every read endpoint must cost a fixed number of statements no matter how many rows it returns.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class SqlStatementCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Autowired
+    private WishListRepository wishListRepository;
+
+    private Statistics statistics;
+    private Category category;
+    private final List<Product> products = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private Order order;
+    private ShoppingCart cart;
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String suffix = UUID.randomUUID().toString();
+
+        category = categoryRepository.save(new Category(null, "category-" + suffix, "image.jpg"));
+        for (int i = 0; i < 3; i++) {
+            Product product = new Product();
+            product.setProductName("product-" + i + "-" + suffix);
+            product.setProductDescription("description");
+            product.setProductPrice(1000f * (i + 1));
+            product.setProductDiscount(0);
+            product.setProductQuantity(5);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+        for (int i = 0; i < 2; i++) {
+            users.add(userRepository.save(new User(null, "user-" + i + "-" + suffix, "secret", UserRole.USER)));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            commentRepository.save(new Comment(null, users.get(i % 2), products.get(0), "comment " + i));
+        }
+
+        order = new Order();
+        order.setUser(users.get(0));
+        order.setTotalAmount(BigDecimal.valueOf(3000));
+        List<OrderProduct> lines = new ArrayList<>();
+        for (Product product : products) {
+            lines.add(OrderProduct.builder().order(order).product(product).quantity(1)
+                    .priceAtOrderTime(BigDecimal.valueOf(product.getProductPrice())).build());
+        }
+        order.setOrderProducts(lines);
+        order = orderRepository.save(order);
+
+        cart = new ShoppingCart();
+        cart.setUser(users.get(0));
+        List<CartItem> items = new ArrayList<>();
+        for (Product product : products) {
+            items.add(new CartItem(null, cart, product, 1, BigDecimal.valueOf(product.getProductPrice())));
+        }
+        cart.setCartItems(items);
+        cart = shoppingCartRepository.save(cart);
+
+        for (Product product : products) {
+            wishListRepository.save(new WishList(null, users.get(0), product));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        wishListRepository.deleteAll(wishListRepository.findByUserId(users.get(0).getId()));
+        shoppingCartRepository.deleteById(cart.getId());
+        orderRepository.deleteById(order.getId());
+        commentRepository.deleteAll(commentRepository.findByProduct_ProductId(products.get(0).getProductId()));
+        productRepository.deleteAll(products);
+        userRepository.deleteAll(users);
+        categoryRepository.delete(category);
+    }
+
+    @Test
+    void productEndpoints() throws Exception {
+        Long productId = products.get(0).getProductId();
+        assertEquals(1, statementsFor("/api/products"));
+        assertEquals(1, statementsFor("/api/products/" + productId));
+        assertEquals(1, statementsFor("/api/products/category/" + category.getId()));
+        assertEquals(1, statementsFor("/api/products/page?categoryId=" + category.getId()));
+        // product, comment page and comment count; no wishlist lookup for anonymous callers
+        assertEquals(3, statementsFor("/api/products/" + productId + "/detail"));
+    }
+
+    @Test
+    void commentEndpoints() throws Exception {
+        assertEquals(1, statementsFor("/api/comments/" + products.get(0).getProductId()));
+    }
+
+    @Test
+    void orderEndpoints() throws Exception {
+        assertEquals(1, statementsFor("/api/orders/" + order.getId()));
+        assertEquals(1, statementsFor("/api/orders/user/" + users.get(0).getId()));
+    }
+
+    @Test
+    void cartAndWishListEndpoints() throws Exception {
+        assertEquals(1, statementsFor("/api/shopping-cart/" + users.get(0).getId()));
+        assertEquals(1, statementsFor("/api/cart-items/cart/" + cart.getId()));
+        assertEquals(1, statementsFor("/api/wish-list/" + users.get(0).getId()));
+    }
+
+    private long statementsFor(String url) throws Exception {
+        productCacheService.evictAll();
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
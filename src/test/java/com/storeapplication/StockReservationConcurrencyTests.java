@@ -0,0 +1,258 @@
+package com.storeapplication;
+
+import com.storeapplication.models.*;
+import com.storeapplication.repository.CategoryRepository;
+import com.storeapplication.repository.ProductRepository;
+import com.storeapplication.repository.StockReservationRepository;
+import com.storeapplication.services.HotStockService;
+import com.storeapplication.services.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Thousands of buyers race for a small stock; exactly the stock is sold and nothing more.
+@SpringBootTest(properties = {"app.stock.sweep-interval-ms=3600000", "app.stock.hot-flush-interval-ms=3600000"})
+class StockReservationConcurrencyTests {
+
+    private static final int STOCK = 100;
+    private static final int BUYERS = 2000;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString();
+        category = categoryRepository.save(new Category(null, "category-" + suffix, "image.jpg"));
+        product = new Product();
+        product.setProductName("hot-product-" + suffix);
+        product.setProductDescription("description");
+        product.setProductPrice(1000f);
+        product.setProductDiscount(0);
+        product.setProductQuantity(STOCK);
+        product.setCategory(category);
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        hotStockService.disable(product.getProductId());
+        reservationRepository.deleteAll(reservationRepository.findByProductId(product.getProductId()));
+        productRepository.delete(product);
+        categoryRepository.delete(category);
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(BUYERS, () -> {
+            if (stockReservationService.reserve(product.getProductId(), 1, null) == null) {
+                sold.incrementAndGet();
+            } else {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(BUYERS - STOCK, rejected.get());
+        assertEquals(0, stockOf(product));
+        assertEquals(STOCK, reservationRepository.countByProductIdAndStatus(product.getProductId(), ReservationStatus.HELD));
+    }
+
+    @Test
+    void mixedQuantitiesNeverOversell() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger buyer = new AtomicInteger();
+        runConcurrently(BUYERS, () -> {
+            int quantity = 1 + buyer.getAndIncrement() % 3;
+            if (stockReservationService.reserve(product.getProductId(), quantity, null) == null) {
+                sold.addAndGet(quantity);
+            }
+        });
+
+        assertTrue(sold.get() <= STOCK);
+        assertEquals(STOCK - sold.get(), stockOf(product));
+    }
+
+    // No striped lock here: every buyer runs the conditional UPDATE in its own transaction,
+    // so only the row lock and the WHERE guard stand between them and a negative stock.
+    @Test
+    void conditionalDecrementAloneNeverOversells() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        runConcurrently(BUYERS, () -> {
+            Integer updated = transactionTemplate.execute(status ->
+                    productRepository.decrementStock(product.getProductId(), 1));
+            if (updated != null && updated == 1) {
+                sold.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(0, stockOf(product));
+    }
+
+    @Test
+    void releasingALineReleasesItsOwnHold() {
+        Long orderId = -System.nanoTime();
+        // two lines of the same product and quantity
+        assertNull(stockReservationService.reserve(product.getProductId(), 5, orderId, 1L));
+        assertNull(stockReservationService.reserve(product.getProductId(), 5, orderId, 2L));
+
+        stockReservationService.releaseLine(orderId, 2L, product.getProductId(), 5);
+
+        for (StockReservation reservation : reservationRepository.findByProductId(product.getProductId())) {
+            assertEquals(reservation.getOrderProductId() == 2L ? ReservationStatus.RELEASED : ReservationStatus.HELD,
+                    reservation.getStatus());
+        }
+        assertEquals(STOCK - 5, stockOf(product));
+    }
+
+    @Test
+    void hotProductsNeverOversellAndFlushEveryTake() throws Exception {
+        assertNull(hotStockService.enable(product.getProductId()));
+        AtomicInteger sold = new AtomicInteger();
+        runConcurrently(BUYERS, () -> {
+            if (stockReservationService.reserve(product.getProductId(), 1, null) == null) {
+                sold.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(0L, hotStockService.available(product.getProductId()));
+        // the row is untouched until the ledger is folded in
+        assertEquals(STOCK, stockOf(product));
+        hotStockService.flush();
+        assertEquals(0, stockOf(product));
+    }
+
+    // Buyers take and give back stock while the product keeps going in and out of hot stock mode;
+    // once the ledger is folded in, the row holds exactly what the remaining holds did not take.
+    @Test
+    void switchingHotStockModeNeverOversells() throws Exception {
+        Long productId = product.getProductId();
+        AtomicInteger task = new AtomicInteger();
+        runConcurrently(BUYERS, () -> {
+            int n = task.getAndIncrement();
+            if (n % 40 == 0) {
+                if (hotStockService.isHot(productId)) {
+                    hotStockService.disable(productId);
+                } else {
+                    hotStockService.enable(productId);
+                }
+                return;
+            }
+            Long orderId = -(long) n - 1;
+            if (stockReservationService.reserve(productId, 1 + n % 2, orderId) == null && n % 3 == 0) {
+                stockReservationService.releaseOrder(orderId);
+            }
+        });
+
+        hotStockService.disable(productId);
+        hotStockService.flush();
+        int held = reservationRepository.findByProductId(productId).stream()
+                .filter(reservation -> reservation.getStatus() == ReservationStatus.HELD)
+                .mapToInt(StockReservation::getQuantity)
+                .sum();
+        assertTrue(held <= STOCK);
+        assertEquals(STOCK - held, stockOf(product));
+    }
+
+    // an admin edit of a hot product goes through the ledger, so a flush can't lose it or apply it twice
+    @Test
+    void stockEditsOfHotProductsReachTheRow() {
+        Long productId = product.getProductId();
+        assertNull(hotStockService.enable(productId));
+        assertNull(stockReservationService.reserve(productId, 30, null));
+        hotStockService.flush();
+
+        assertNull(stockReservationService.adjustStock(productId, 10));
+        assertNull(stockReservationService.adjustStock(productId, -5));
+        assertEquals(Long.valueOf(STOCK - 30 + 5), hotStockService.available(productId));
+        assertTrue(stockReservationService.adjustStock(productId, -(STOCK - 30 + 6)) != null);
+
+        hotStockService.flush();
+        assertEquals(STOCK - 30 + 5, stockOf(product));
+    }
+
+    @Test
+    void expiredHoldsReturnStockExactlyOnce() throws Exception {
+        Long orderId = -System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertNull(stockReservationService.reserve(product.getProductId(), 5, orderId));
+        }
+        assertEquals(STOCK - 50, stockOf(product));
+
+        for (StockReservation reservation : reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.HELD)) {
+            reservation.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+            reservationRepository.save(reservation);
+        }
+
+        // the expiry sweep and a payment failure race for the same holds
+        runConcurrently(THREADS, () -> {
+            stockReservationService.releaseExpired();
+            stockReservationService.releaseHolds(orderId);
+        });
+
+        assertEquals(STOCK, stockOf(product));
+        assertEquals(10, reservationRepository.findByOrderIdAndStatus(orderId, ReservationStatus.EXPIRED).size());
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getProductId()).orElseThrow().getProductQuantity();
+    }
+
+    private void runConcurrently(int tasks, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.storeapplication;
+
+import com.storeapplication.dto.response.SuggestionResponseDto;
+import com.storeapplication.models.Product;
+import com.storeapplication.services.SuggestService;
+import com.storeapplication.utils.TextAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestServiceTests {
+
+    // few, overlapping words, so edges get split and merged back all the time
+    private static final String[] WORDS = {"گوشی", "گوشواره", "سامسونگ", "سام", "a", "ab", "abc", "abd", "b", "phone", "phones"};
+
+    private final SuggestService service = new SuggestService(null, null, null);
+
+    // the trie against a scan over every live name, through adds, renames, views and removals
+    @Test
+    void matchesAFullScan() {
+        Random random = new Random(7);
+        Map<Long, String> names = new HashMap<>();
+        Map<Long, Long> views = new HashMap<>();
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(200);
+            int action = random.nextInt(10);
+            if (action < 6) {
+                String name = randomName(random);
+                service.putProduct(product(id, name));
+                names.put(id, name);
+            } else if (action < 8) {
+                service.removeProduct(id);
+                names.remove(id);
+                views.remove(id);
+            } else if (names.containsKey(id)) {
+                service.recordView(id);
+                service.flushViews();
+                views.merge(id, 1L, Long::sum);
+            }
+            if (step % 50 == 0) {
+                for (String word : WORDS) {
+                    for (int length = 1; length <= word.length(); length++) {
+                        String prefix = word.substring(0, length);
+                        assertEquals(scan(names, views, prefix), suggested(prefix), prefix);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<String> suggested(String prefix) {
+        List<String> result = new ArrayList<>();
+        for (SuggestionResponseDto dto : service.suggest(prefix, 10)) {
+            result.add(dto.getText());
+        }
+        return result;
+    }
+
+    private static List<String> scan(Map<Long, String> names, Map<Long, Long> views, String prefix) {
+        String key = TextAnalyzer.normalize(prefix);
+        List<Long> matches = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : names.entrySet()) {
+            String normalized = TextAnalyzer.normalize(entry.getValue());
+            for (int i = 0; i < normalized.length(); i++) {
+                if ((i == 0 || normalized.charAt(i - 1) == ' ') && normalized.startsWith(key, i)) {
+                    matches.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        matches.sort(Comparator.comparingLong((Long id) -> views.getOrDefault(id, 0L)).reversed()
+                .thenComparingInt(id -> names.get(id).length())
+                .thenComparing(names::get));
+        List<String> result = new ArrayList<>();
+        for (Long id : matches.subList(0, Math.min(10, matches.size()))) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return name.toString();
+    }
+
+    private static Product product(long id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        return product;
+    }
+}
@@ -0,0 +1,141 @@
+package com.storeapplication.benchmark;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import com.storeapplication.utils.ImageUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Ingests a 12 MP (4000x3000) JPEG upload the way saveImageWithOrientation used to (two passes over
+// the multipart stream, ImageMetadataReader, bilinear AffineTransformOp) and the way it does now.
+// The gc profiler's gc.alloc.rate.norm column is the allocation per upload.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class ImageIngestBenchmark {
+
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+
+    // 1 is stored as is, 6 is a phone held upright
+    @Param({"1", "6"})
+    public int orientation;
+
+    private MultipartFile upload;
+    private Path dir;
+
+    @Setup
+    public void setUp() throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, WIDTH, HEIGHT, Color.BLUE));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        upload = new MockMultipartFile("image", "photo.jpg", "image/jpeg", withOrientation(jpeg.toByteArray(), orientation));
+        dir = Files.createTempDirectory("image-ingest");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String twoPassAffine() throws Exception {
+        return legacySave(upload, dir.toString());
+    }
+
+    @Benchmark
+    public String singlePassTranspose() throws Exception {
+        File outputFile = new File(dir.toFile(), System.nanoTime() + "_" + upload.getOriginalFilename());
+        try (ImageUtil.Upload read = ImageUtil.readUpload(upload)) {
+            read.writeOriented(outputFile, 0.75f);
+        }
+        return outputFile.getAbsolutePath();
+    }
+
+    // the previous implementation, kept verbatim apart from the name; 0.75 above is ImageIO's default quality
+    private static String legacySave(MultipartFile file, String uploadDir) throws Exception {
+        File outputFile = new File(uploadDir, System.nanoTime() + "_" + file.getOriginalFilename());
+
+        InputStream inputStream = file.getInputStream();
+        BufferedImage img = ImageIO.read(inputStream);
+
+        inputStream.close();
+        inputStream = file.getInputStream();
+        Metadata metadata = ImageMetadataReader.readMetadata(inputStream);
+        int orientation = 1;
+        var dirExif = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+        if (dirExif != null && dirExif.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+            orientation = dirExif.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+        }
+        inputStream.close();
+
+        BufferedImage rotated = img;
+        if (orientation == 6) {
+            AffineTransform transform = new AffineTransform();
+            transform.translate(img.getHeight(), 0);
+            transform.rotate(Math.toRadians(90));
+            rotated = new AffineTransformOp(transform, AffineTransformOp.TYPE_BILINEAR)
+                    .filter(img, new BufferedImage(img.getHeight(), img.getWidth(), img.getType()));
+        }
+
+        ImageIO.write(rotated, "jpg", outputFile);
+        return outputFile.getAbsolutePath();
+    }
+
+    // Inserts a minimal big-endian EXIF APP1 segment holding only the orientation tag right after SOI
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] app1 = {
+                (byte) 0xFF, (byte) 0xE1, 0x00, 0x22,
+                'E', 'x', 'i', 'f', 0x00, 0x00,
+                'M', 'M', 0x00, 0x2A, 0x00, 0x00, 0x00, 0x08,
+                0x00, 0x01,
+                0x01, 0x12, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, (byte) orientation, 0x00, 0x00,
+                0x00, 0x00, 0x00, 0x00
+        };
+        byte[] result = new byte[jpeg.length + app1.length];
+        System.arraycopy(jpeg, 0, result, 0, 2);
+        System.arraycopy(app1, 0, result, 2, app1.length);
+        System.arraycopy(jpeg, 2, result, 2 + app1.length, jpeg.length - 2);
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ImageIngestBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.storeapplication.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Sends an image to a discarding sink the way getImage used to (Files.readAllBytes, one heap array
+// per request) and the way FileSender falls back to when sendfile is unavailable (FileChannel.transferTo).
+// The gc profiler's gc.alloc.rate.norm column is the per-request allocation. Tomcat's sendfile path
+// copies nothing through the JVM at all and needs a running connector, so it is not measured here.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageServingBenchmark {
+
+    // thumb, card and zoom derivatives and a full size upload
+    @Param({"16384", "131072", "524288", "4194304"})
+    public int size;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        file = Files.createTempFile("image-serving", ".jpg");
+        Files.write(file, bytes);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long readAllBytes() throws IOException {
+        byte[] image = Files.readAllBytes(file);
+        OutputStream out = OutputStream.nullOutputStream();
+        out.write(image);
+        return image.length;
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        WritableByteChannel target = Channels.newChannel(OutputStream.nullOutputStream());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            long remaining = channel.size();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                position += sent;
+                remaining -= sent;
+            }
+            return position;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ImageServingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.storeapplication.benchmark;
+
+import com.storeapplication.utils.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Totals a 50 line order the way OrderProductService used to (BigDecimal per line)
+// and with Money's long minor units. Run with: mvn test-compile, then main() from the IDE,
+// or java -cp target/test-classes:<test classpath> com.storeapplication.benchmark.MoneyBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int LINES = 50;
+
+    private final BigDecimal[] prices = new BigDecimal[LINES];
+    private final float[] floatPrices = new float[LINES];
+    private final int[] discounts = new int[LINES];
+    private final int[] quantities = new int[LINES];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < LINES; i++) {
+            floatPrices[i] = random.nextInt(10_000_000) / 100f;
+            prices[i] = BigDecimal.valueOf(floatPrices[i]);
+            discounts[i] = random.nextInt(60);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal unit = prices[i].multiply(BigDecimal.valueOf(100 - discounts[i]))
+                    .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+            total = total.add(unit.multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long moneyTotal() {
+        long total = 0;
+        for (int i = 0; i < LINES; i++) {
+            long unit = Money.discounted(Money.ofMajor(floatPrices[i]), discounts[i]);
+            total = Money.add(total, Money.times(unit, quantities[i]));
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.storeapplication.benchmark;
+
+import com.storeapplication.models.Category;
+import com.storeapplication.models.Product;
+import com.storeapplication.services.SuggestService;
+
+import java.util.Random;
+
+// Heap taken by SuggestService's index for a generated catalog of 100k products in 500 categories,
+// names of 4 to 7 words mixing Persian and Latin. Run with: mvn test-compile, then main() from the IDE,
+// or java -cp target/test-classes:<test classpath> com.storeapplication.benchmark.SuggestMemoryBenchmark [products]
+public class SuggestMemoryBenchmark {
+
+    private static final String[] TYPES = {"گوشی موبایل", "لپ تاپ", "هدفون بی سیم", "ساعت هوشمند", "تبلت",
+            "کفش ورزشی", "تیشرت مردانه", "مانتو زنانه", "یخچال فریزر", "ماشین لباسشویی", "جاروبرقی",
+            "کتاب", "عطر", "کرم مرطوب کننده", "قهوه ساز", "Smart TV", "Gaming Mouse", "Keyboard", "SSD", "Power Bank"};
+    private static final String[] BRANDS = {"سامسونگ", "اپل", "شیائومی", "ال جی", "سونی", "ایسوس", "لنوو",
+            "نایکی", "آدیداس", "بوش", "فیلیپس", "پارس خزر", "Samsung", "Apple", "Xiaomi", "Logitech", "Anker",
+            "Kingston", "Huawei", "Dell"};
+    private static final String[] ATTRIBUTES = {"مشکی", "سفید", "آبی", "قرمز", "نقره ای", "طلایی", "ظرفیت",
+            "گیگابایت", "اینچ", "سایز", "مدل جدید", "اورجینال", "Pro", "Max", "Ultra", "Lite", "Plus", "Black",
+            "White", "Edition"};
+
+    public static void main(String[] args) {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(42);
+        String[] names = new String[products];
+        for (int i = 0; i < products; i++) {
+            names[i] = name(random);
+        }
+
+        long before = usedHeap();
+        SuggestService service = new SuggestService(null, null, null);
+        for (int i = 0; i < 500; i++) {
+            Category category = new Category();
+            category.setId((long) i);
+            category.setName(TYPES[i % TYPES.length] + " " + BRANDS[i % BRANDS.length] + " " + i);
+            service.putCategory(category);
+        }
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setProductId((long) i);
+            product.setProductName(names[i]);
+            service.putProduct(product);
+        }
+        long after = usedHeap();
+
+        System.out.printf("%d products: %.1f MB (%d bytes per product)%n",
+                products, (after - before) / 1048576.0, (after - before) / products);
+        // keeps the index reachable until after the measurement
+        System.out.println(service.suggest("سامسونگ", 5).size());
+    }
+
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder(TYPES[random.nextInt(TYPES.length)])
+                .append(' ').append(BRANDS[random.nextInt(BRANDS.length)])
+                .append(' ').append((char) ('A' + random.nextInt(26))).append(random.nextInt(1000));
+        int attributes = 1 + random.nextInt(3);
+        for (int i = 0; i < attributes; i++) {
+            name.append(' ').append(ATTRIBUTES[random.nextInt(ATTRIBUTES.length)]);
+        }
+        if (random.nextBoolean()) {
+            name.append(' ').append(32 << random.nextInt(4));
+        }
+        return name.toString();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}